@@ -8,10 +8,19 @@ public class BeanPropertyHolder {
 
 	private final Object bean;
 	private final Field field;
+	private final Object defaultValue;
 
 	public BeanPropertyHolder(Object bean, Field field) {
+		this(bean, field, null);
+	}
+
+	/**
+	 * @param defaultValue the value declared for the field, restored when its property is removed
+	 */
+	public BeanPropertyHolder(Object bean, Field field, Object defaultValue) {
 		this.bean = bean;
 		this.field = field;
+		this.defaultValue = defaultValue;
 	}
 
 	public Object getBean() {
@@ -22,6 +31,10 @@ public class BeanPropertyHolder {
 		return this.field;
 	}
 
+	public Object getDefaultValue() {
+		return this.defaultValue;
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hashCode(this.bean, this.field);
@@ -0,0 +1,51 @@
+package com.morgan.design.properties.bean;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Objects;
+
+/**
+ * Several properties changed together in a single generation, listeners should apply all modifications or none of them.
+ */
+public class PropertiesModifiedEvent {
+
+	private final List<PropertyModifiedEvent> modifications;
+	private final long generation;
+
+	public PropertiesModifiedEvent(final List<PropertyModifiedEvent> modifications, final long generation) {
+		this.modifications = Collections.unmodifiableList(modifications);
+		this.generation = generation;
+	}
+
+	public List<PropertyModifiedEvent> getModifications() {
+		return this.modifications;
+	}
+
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(this.modifications, this.generation);
+	}
+
+	@Override
+	public boolean equals(final Object object) {
+		if (object instanceof PropertiesModifiedEvent) {
+			final PropertiesModifiedEvent that = (PropertiesModifiedEvent) object;
+			return Objects.equal(this.modifications, that.modifications) && this.generation == that.generation;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this)
+			.add("modifications", this.modifications)
+			.add("generation", this.generation)
+			.toString();
+	}
+
+}
@@ -7,11 +7,20 @@ public class PropertyModifiedEvent {
 	private final String propertyName;
 	private final Object oldValue;
 	private final Object newValue;
+	private final long generation;
 
 	public PropertyModifiedEvent(final String propertyName, final Object oldValue, final Object newValue) {
+		this(propertyName, oldValue, newValue, 0);
+	}
+
+	/**
+	 * @param generation the generation of the property snapshot the change was committed in
+	 */
+	public PropertyModifiedEvent(final String propertyName, final Object oldValue, final Object newValue, final long generation) {
 		this.propertyName = propertyName;
 		this.oldValue = oldValue;
 		this.newValue = newValue;
+		this.generation = generation;
 	}
 
 	public String getPropertyName() {
@@ -25,9 +34,21 @@ public class PropertyModifiedEvent {
 	public Object getNewValue() {
 		return this.newValue;
 	}
+
+	public long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return true if the property no longer exists, i.e. there is no new value
+	 */
+	public boolean isRemoved() {
+		return null == this.newValue;
+	}
+
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(this.propertyName, this.oldValue, this.newValue);
+		return Objects.hashCode(this.propertyName, this.oldValue, this.newValue, this.generation);
 	}
 
 	@Override
@@ -35,7 +56,7 @@ public class PropertyModifiedEvent {
 		if (object instanceof PropertyModifiedEvent) {
 			final PropertyModifiedEvent that = (PropertyModifiedEvent) object;
 			return Objects.equal(this.propertyName, that.propertyName) && Objects.equal(this.oldValue, that.oldValue)
-				&& Objects.equal(this.newValue, that.newValue);
+				&& Objects.equal(this.newValue, that.newValue) && this.generation == that.generation;
 		}
 		return false;
 	}
@@ -46,6 +67,7 @@ public class PropertyModifiedEvent {
 			.add("propertyName", this.propertyName)
 			.add("oldValue", this.oldValue)
 			.add("newValue", this.newValue)
+			.add("generation", this.generation)
 			.toString();
 	}
 
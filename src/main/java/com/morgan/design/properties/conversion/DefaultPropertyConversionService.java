@@ -34,7 +34,13 @@ public class DefaultPropertyConversionService implements PropertyConversionServi
 		CONVERTS.put(LocalTime.class, new LocalTimeConverter());
 	}
 
-	private static SimpleTypeConverter DEFAULT = new SimpleTypeConverter();
+	// Property editors hold the value being converted, each thread converts with its own converter
+	private static final ThreadLocal<SimpleTypeConverter> DEFAULT = new ThreadLocal<SimpleTypeConverter>() {
+		@Override
+		protected SimpleTypeConverter initialValue() {
+			return new SimpleTypeConverter();
+		}
+	};
 
 	@Override
 	public Object convertPropertyForField(final Class<?> type, final String property) throws Throwable {
@@ -61,7 +67,8 @@ public class DefaultPropertyConversionService implements PropertyConversionServi
 
 		@Override
 		public Object apply(final Object input) {
-			return DEFAULT.convertIfNecessary(input, this.type);
+			return DEFAULT.get()
+				.convertIfNecessary(input, this.type);
 		}
 	}
 
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import com.google.common.eventbus.EventBus;
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
 import com.morgan.design.properties.bean.PropertyModifiedEvent;
 import com.morgan.design.properties.internal.ReloadablePropertyPostProcessor;
 
@@ -23,6 +24,11 @@ public class GuavaPropertyChangedEventNotifier implements PropertyChangedEventNo
 		this.eventBus.post(propertyChangedEvent);
 	}
 
+	@Override
+	public void post(final PropertiesModifiedEvent propertiesChangedEvent) {
+		this.eventBus.post(propertiesChangedEvent);
+	}
+
 	@Override
 	public void unregister(final ReloadablePropertyPostProcessor ReloadablePropertyPostProcessor) {
 		this.eventBus.unregister(ReloadablePropertyPostProcessor);
@@ -1,5 +1,6 @@
 package com.morgan.design.properties.event;
 
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
 import com.morgan.design.properties.bean.PropertyModifiedEvent;
 import com.morgan.design.properties.internal.ReloadablePropertyPostProcessor;
 
@@ -7,6 +8,8 @@ public interface PropertyChangedEventNotifier {
 
 	void post(PropertyModifiedEvent propertyChangedEvent);
 
+	void post(PropertiesModifiedEvent propertiesChangedEvent);
+
 	void unregister(ReloadablePropertyPostProcessor reloadablePropertyProcessor);
 
 	void register(ReloadablePropertyPostProcessor reloadablePropertyProcessor);
@@ -0,0 +1,19 @@
+package com.morgan.design.properties.event;
+
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
+
+/**
+ * Listener subscribed to every property below a namespace, e.g. <code>service.payments</code> covering <code>service.payments.url</code> and
+ * <code>service.payments.retry.count</code>.
+ */
+public interface PropertyNamespaceListener {
+
+	/**
+	 * Called once per generation with all modifications of properties below the subscribed namespace, on the thread applying the change.
+	 *
+	 * @param namespace the namespace subscribed to
+	 * @param event the modifications of properties below the namespace only
+	 */
+	void onNamespaceModified(String namespace, PropertiesModifiedEvent event);
+
+}
@@ -0,0 +1,27 @@
+package com.morgan.design.properties.exception;
+
+import java.util.List;
+
+import com.google.common.base.Joiner;
+
+/**
+ * Exception which is thrown when property placeholders refer to each other in a cycle, e.g. <code>a=${b}</code> and <code>b=${a}</code>.
+ */
+public class CircularPropertyReferenceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> cycle;
+
+    public CircularPropertyReferenceException(List<String> cycle) {
+        super("Circular property reference " + Joiner.on(" -> ").join(cycle));
+        this.cycle = cycle;
+    }
+
+    /**
+     * @return the properties forming the cycle, starting and ending with the same property
+     */
+    public List<String> getCycle() {
+        return cycle;
+    }
+}
@@ -0,0 +1,68 @@
+package com.morgan.design.properties.internal;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+
+import com.google.common.base.Objects;
+
+/**
+ * Weak reference to a bean with a field bound to a property, keeping the {@link FieldBinding} of its field so updates write through the binding's cached
+ * setter. The bean stays collectable, once collected the holder is enqueued to be unsubscribed.
+ * <p>
+ * The holder remembers the snapshot generation its field was last assigned from, a bean injected on one thread while a reload updates it on another
+ * keeps the value of the later generation whichever thread writes last.
+ * </p>
+ */
+final class BoundBeanPropertyHolder extends WeakReference<Object> {
+
+	private final FieldBinding binding;
+	private final Object defaultValue;
+
+	// Guarded by this holder
+	private long assignedGeneration;
+
+	/**
+	 * @param defaultValue the value declared for the field, restored when its property is removed
+	 */
+	BoundBeanPropertyHolder(final Object bean, final FieldBinding binding, final Object defaultValue, final ReferenceQueue<Object> queue) {
+		super(bean, queue);
+		this.binding = binding;
+		this.defaultValue = defaultValue;
+	}
+
+	FieldBinding getBinding() {
+		return this.binding;
+	}
+
+	Field getField() {
+		return this.binding.getField();
+	}
+
+	Object getDefaultValue() {
+		return this.defaultValue;
+	}
+
+	/**
+	 * Assigns the given value unless a value of the same or a later generation was already assigned, a generation of 0 is unknown and always assigned.
+	 *
+	 * @return whether the value was assigned, false too if the bean was collected
+	 */
+	synchronized boolean assign(final Object value, final long generation) {
+		final Object bean = get();
+		if (null == bean || 0 != generation && generation <= this.assignedGeneration) {
+			return false;
+		}
+		this.binding.set(bean, value);
+		this.assignedGeneration = Math.max(this.assignedGeneration, generation);
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this)
+			.add("bean", get())
+			.add("field", getField())
+			.toString();
+	}
+}
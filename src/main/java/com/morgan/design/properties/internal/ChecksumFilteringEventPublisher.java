@@ -0,0 +1,110 @@
+package com.morgan.design.properties.internal;
+
+import com.google.common.collect.Maps;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+import com.morgan.design.util.ChecksumUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EventPublisher} only passing on change events for resources whose content has actually changed, e.g. ignoring a <code>touch</code> or a rewrite
+ * of identical content. A CRC32 checksum of each resource is kept and compared on every change event.
+ * <p>
+ * The checksum of a resource is only recorded once its reload succeeded, a failed or rejected reload is retried on the next change event even if the
+ * content is then unchanged.
+ * </p>
+ */
+public class ChecksumFilteringEventPublisher implements EventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ChecksumFilteringEventPublisher.class);
+
+    private final Reloader reloader;
+    private final ConcurrentMap<Resource, Long> checksums = Maps.newConcurrentMap();
+
+    private final AtomicLong skippedReloads = new AtomicLong();
+    private final AtomicLong performedReloads = new AtomicLong();
+
+    /**
+     * Reloads a resource whose content changed.
+     */
+    public interface Reloader {
+
+        /**
+         * @return whether the resource was reloaded, false if it could not be loaded or its content was rejected
+         */
+        boolean reload(Resource resource);
+    }
+
+    /**
+     * @param delegate publisher every change is passed on to, treated as always reloading successfully
+     */
+    public ChecksumFilteringEventPublisher(final EventPublisher delegate) {
+        this(new Reloader() {
+            @Override
+            public boolean reload(final Resource resource) {
+                delegate.onResourceChanged(resource);
+                return true;
+            }
+        });
+    }
+
+    public ChecksumFilteringEventPublisher(final Reloader reloader) {
+        this.reloader = reloader;
+    }
+
+    /**
+     * Records the current checksum of the given resources, so that the first change event of each is compared against the content already loaded.
+     */
+    public void prime(final Resource[] resources) {
+        for (final Resource resource : resources) {
+            try {
+                checksums.put(resource, ChecksumUtils.crc32(resource));
+            } catch (IOException e) {
+                log.debug("Unable to calculate checksum of resource {}", resource, e);
+            }
+        }
+    }
+
+    /**
+     * Records the given checksums, computed from the content each resource was loaded from, without reading the resources again.
+     */
+    public void prime(final Map<Resource, Long> resourceChecksums) {
+        checksums.putAll(resourceChecksums);
+    }
+
+    @Override
+    public void onResourceChanged(final Resource resource) {
+        Long checksum;
+        try {
+            checksum = ChecksumUtils.crc32(resource);
+            if (checksum.equals(checksums.get(resource))) {
+                log.debug("Content of resource {} unchanged, skipping reload", resource);
+                skippedReloads.incrementAndGet();
+                return;
+            }
+        } catch (IOException e) {
+            // Let the reload report the unreadable resource
+            checksum = null;
+        }
+        performedReloads.incrementAndGet();
+        if (reloader.reload(resource) && null != checksum) {
+            checksums.put(resource, checksum);
+        } else {
+            checksums.remove(resource);
+        }
+    }
+
+    public long getSkippedReloadCount() {
+        return skippedReloads.get();
+    }
+
+    public long getPerformedReloadCount() {
+        return performedReloads.get();
+    }
+}
@@ -0,0 +1,183 @@
+package com.morgan.design.properties.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+
+/**
+ * Immutable {@link Map} of property keys to values split by key hash into chunks of a few hundred keys. A new generation with changed keys is derived
+ * with {@link #withChanges(Map, Set)}, copying only the chunks holding a changed key and sharing every other chunk, so the cost of a change grows with
+ * the number of changed keys rather than the size of the map.
+ * <p>
+ * Chunks are {@link java.util.HashMap}s, or {@link CompactPropertyMap}s sharing equal values across chunks for compact storage. Compact generations
+ * share one {@link DistinctValues} set, so a changed value equal to one held by an unchanged chunk is held once.
+ * </p>
+ */
+public final class ChunkedPropertyMap extends AbstractMap<String, String> {
+
+    private static final int CHUNK_SIZE = 256;
+    // Chunks are re-split once the average chunk grows or shrinks this many times over or under the target size
+    private static final int RESPLIT_FACTOR = 4;
+    // Values no longer in use are dropped by copying the map once the distinct values outnumber its mappings this many times
+    private static final int STALE_VALUES_FACTOR = 2;
+
+    private final Map<String, String>[] chunks;
+    private final int shift;
+    private final int size;
+    private final DistinctValues distinctValues;
+
+    private ChunkedPropertyMap(final Map<String, String>[] chunks, final int size, final DistinctValues distinctValues) {
+        this.chunks = chunks;
+        this.shift = 32 - Integer.numberOfTrailingZeros(chunks.length);
+        this.size = size;
+        this.distinctValues = distinctValues;
+    }
+
+    /**
+     * @param compact whether to hold each chunk in a {@link CompactPropertyMap}
+     */
+    public static ChunkedPropertyMap copyOf(final Map<String, String> properties, final boolean compact) {
+        final Map<String, String>[] split = newChunks(chunkCountFor(properties.size()));
+        final int shift = 32 - Integer.numberOfTrailingZeros(split.length);
+        for (int i = 0; i < split.length; i++) {
+            split[i] = Maps.newHashMap();
+        }
+        for (final Map.Entry<String, String> property : properties.entrySet()) {
+            if (null == property.getKey() || null == property.getValue()) {
+                throw new NullPointerException("Null property keys and values are not supported");
+            }
+            split[indexOf(property.getKey(), shift)].put(property.getKey(), property.getValue());
+        }
+
+        final DistinctValues distinctValues = compact ? new DistinctValues() : null;
+        for (int i = 0; i < split.length; i++) {
+            split[i] = seal(split[i], distinctValues);
+        }
+        return new ChunkedPropertyMap(split, properties.size(), distinctValues);
+    }
+
+    /**
+     * @return a map holding the mappings of this map with the given properties set to their new values and the given properties removed, sharing
+     *         every chunk holding none of them with this map, which is left unchanged
+     */
+    public ChunkedPropertyMap withChanges(final Map<String, String> modified, final Set<String> removed) {
+        final Map<String, String>[] changed = newChunks(this.chunks.length);
+        int size = this.size;
+        for (final Map.Entry<String, String> property : modified.entrySet()) {
+            if (null == property.getValue()) {
+                throw new NullPointerException("Null property values are not supported");
+            }
+            final Map<String, String> chunk = changedChunk(changed, property.getKey());
+            if (null == chunk.put(property.getKey(), property.getValue())) {
+                size++;
+            }
+        }
+        for (final String property : removed) {
+            if (containsKey(property) && null != changedChunk(changed, property).remove(property)) {
+                size--;
+            }
+        }
+
+        final Map<String, String>[] next = this.chunks.clone();
+        for (int i = 0; i < changed.length; i++) {
+            if (null != changed[i]) {
+                next[i] = seal(changed[i], this.distinctValues);
+            }
+        }
+        final ChunkedPropertyMap result = new ChunkedPropertyMap(next, size, this.distinctValues);
+        final int chunkCount = chunkCountFor(size);
+        if (chunkCount >= this.chunks.length * RESPLIT_FACTOR || chunkCount * RESPLIT_FACTOR <= this.chunks.length
+                || null != this.distinctValues && this.distinctValues.size() > (long) size * STALE_VALUES_FACTOR + CHUNK_SIZE) {
+            return copyOf(result, null != this.distinctValues);
+        }
+        return result;
+    }
+
+    @Override
+    public String get(final Object key) {
+        return key instanceof String ? chunkOf((String) key).get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof String && chunkOf((String) key).containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                final Iterator<Map.Entry<String, String>>[] iterators = newIterators(ChunkedPropertyMap.this.chunks.length);
+                for (int i = 0; i < iterators.length; i++) {
+                    iterators[i] = ChunkedPropertyMap.this.chunks[i].entrySet()
+                        .iterator();
+                }
+                return Iterators.concat(iterators);
+            }
+
+            @Override
+            public int size() {
+                return ChunkedPropertyMap.this.size;
+            }
+        };
+    }
+
+    private Map<String, String> chunkOf(final String key) {
+        return this.chunks[indexOf(key, this.shift)];
+    }
+
+    /**
+     * @return the mutable copy of the chunk holding the given key, copied on first use
+     */
+    private Map<String, String> changedChunk(final Map<String, String>[] changed, final String key) {
+        final int index = indexOf(key, this.shift);
+        if (null == changed[index]) {
+            changed[index] = Maps.newHashMap(this.chunks[index]);
+        }
+        return changed[index];
+    }
+
+    /**
+     * The high order bits of the multiplied hash pick the chunk, leaving the low order bits used within a chunk evenly spread.
+     */
+    private static int indexOf(final String key, final int shift) {
+        return shift == 32 ? 0 : (key.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * @param distinctValues the values held by compact chunks, null for {@link java.util.HashMap} chunks
+     */
+    private static Map<String, String> seal(final Map<String, String> chunk, final DistinctValues distinctValues) {
+        return null != distinctValues ? CompactPropertyMap.copyOf(chunk, distinctValues) : Collections.unmodifiableMap(chunk);
+    }
+
+    private static int chunkCountFor(final int size) {
+        int count = 1;
+        while (count < (1 << 24) && (long) count * CHUNK_SIZE < size) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String>[] newChunks(final int count) {
+        return (Map<String, String>[]) new Map<?, ?>[count];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterator<Map.Entry<String, String>>[] newIterators(final int count) {
+        return (Iterator<Map.Entry<String, String>>[]) new Iterator<?>[count];
+    }
+}
@@ -0,0 +1,155 @@
+package com.morgan.design.properties.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable, memory compact {@link Map} of property keys to values for very large property sets.
+ * <p>
+ * Entries are held in two parallel arrays addressed by open addressing with linear probing, avoiding the entry object per mapping of a
+ * {@link java.util.HashMap} or {@link java.util.Hashtable}. Equal values are deduplicated so each distinct value is held once, and key instances are
+ * shared with the map copied from so successive snapshot generations hold every key once.
+ * </p>
+ */
+public final class CompactPropertyMap extends AbstractMap<String, String> {
+
+    private static final int MAX_LOAD_PERCENT = 60;
+
+    private final String[] keys;
+    private final String[] values;
+    private final int mask;
+    private final int size;
+
+    private CompactPropertyMap(final Map<String, String> properties, final DistinctValues distinctValues) {
+        final int capacity = capacityFor(properties.size());
+        this.keys = new String[capacity];
+        this.values = new String[capacity];
+        this.mask = capacity - 1;
+
+        for (final Map.Entry<String, String> property : properties.entrySet()) {
+            if (null == property.getKey() || null == property.getValue()) {
+                throw new NullPointerException("Null property keys and values are not supported");
+            }
+            final int slot = slotOf(property.getKey());
+            this.keys[slot] = property.getKey();
+            this.values[slot] = distinctValues.intern(property.getValue());
+        }
+        this.size = properties.size();
+    }
+
+    public static CompactPropertyMap copyOf(final Map<String, String> properties) {
+        if (properties instanceof CompactPropertyMap) {
+            return (CompactPropertyMap) properties;
+        }
+        // Scoped to construction, a global interner would cost more per entry than it saves
+        return new CompactPropertyMap(properties, new DistinctValues());
+    }
+
+    /**
+     * @param distinctValues values already held by other maps, equal values are held once across every map built with the same set
+     */
+    static CompactPropertyMap copyOf(final Map<String, String> properties, final DistinctValues distinctValues) {
+        return new CompactPropertyMap(properties, distinctValues);
+    }
+
+    @Override
+    public String get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        return this.values[slotOf((String) key)];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof String && null != this.keys[slotOf((String) key)];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactPropertyMap.this.size;
+            }
+        };
+    }
+
+    /**
+     * @return the slot holding the given key, or the empty slot it would be held in
+     */
+    private int slotOf(final String key) {
+        int slot = spread(key.hashCode()) & this.mask;
+        while (null != this.keys[slot] && !key.equals(this.keys[slot])) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Dotted property names sharing long prefixes differ mostly in their low order hash bits, mix in the high order bits before masking.
+     */
+    static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int capacityFor(final int size) {
+        final long minimum = ((long) size * 100 + MAX_LOAD_PERCENT - 1) / MAX_LOAD_PERCENT;
+        if (minimum > 1 << 30) {
+            throw new IllegalArgumentException("Too many properties: " + size);
+        }
+        int capacity = 2;
+        while (capacity < minimum) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+        private int next = advance(0);
+
+        private int advance(final int from) {
+            int slot = from;
+            while (slot < CompactPropertyMap.this.keys.length && null == CompactPropertyMap.this.keys[slot]) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < CompactPropertyMap.this.keys.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int slot = this.next;
+            this.next = advance(slot + 1);
+            return new SimpleImmutableEntry<String, String>(CompactPropertyMap.this.keys[slot], CompactPropertyMap.this.values[slot]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
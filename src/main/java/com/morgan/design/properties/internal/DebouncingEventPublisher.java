@@ -0,0 +1,114 @@
+package com.morgan.design.properties.internal;
+
+import com.google.common.collect.Maps;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EventPublisher} coalescing bursts of change events for the same resource into a single event. A change is only passed on once no further events
+ * have been received for the resource within the quiet period, or once the maximum wait has elapsed since the first event of the burst.
+ */
+public class DebouncingEventPublisher implements EventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(DebouncingEventPublisher.class);
+
+    private final EventPublisher delegate;
+    private final ResourcePollingScheduler scheduler;
+    private final long quietPeriod;
+    private final long maxWait;
+
+    private final Map<Resource, PendingChange> pendingChanges = Maps.newHashMap();
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicLong publishedEvents = new AtomicLong();
+
+    /**
+     * @param delegate the publisher receiving the coalesced events
+     * @param scheduler the scheduler running the delayed publication
+     * @param quietPeriod time in ms without events for a resource before its change is published
+     * @param maxWait maximum time in ms a change is held back while events for the resource keep arriving
+     */
+    public DebouncingEventPublisher(final EventPublisher delegate, final ResourcePollingScheduler scheduler, final long quietPeriod, final long maxWait) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.quietPeriod = quietPeriod;
+        this.maxWait = Math.max(quietPeriod, maxWait);
+    }
+
+    @Override
+    public void onResourceChanged(final Resource resource) {
+        final long now = System.nanoTime();
+        synchronized (pendingChanges) {
+            final PendingChange pendingChange = pendingChanges.get(resource);
+            if (null != pendingChange) {
+                pendingChange.lastEvent = now;
+                coalescedEvents.incrementAndGet();
+                return;
+            }
+            pendingChanges.put(resource, new PendingChange(now));
+        }
+        scheduler.schedule(new Flush(resource), quietPeriod);
+    }
+
+    /**
+     * @return the number of change events merged into an already pending change
+     */
+    public long getCoalescedEventCount() {
+        return coalescedEvents.get();
+    }
+
+    /**
+     * @return the number of change events passed on to the delegate
+     */
+    public long getPublishedEventCount() {
+        return publishedEvents.get();
+    }
+
+    private static class PendingChange {
+
+        private final long firstEvent;
+        private long lastEvent;
+
+        public PendingChange(final long firstEvent) {
+            this.firstEvent = firstEvent;
+            this.lastEvent = firstEvent;
+        }
+    }
+
+    private class Flush implements Runnable {
+
+        private final Resource resource;
+
+        public Flush(final Resource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public void run() {
+            final long now = System.nanoTime();
+            synchronized (pendingChanges) {
+                final PendingChange pendingChange = pendingChanges.get(resource);
+                final long remaining = Math.min(pendingChange.lastEvent + TimeUnit.MILLISECONDS.toNanos(quietPeriod),
+                        pendingChange.firstEvent + TimeUnit.MILLISECONDS.toNanos(maxWait)) - now;
+                if (remaining > 0) {
+                    scheduler.schedule(this, TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                    return;
+                }
+                pendingChanges.remove(resource);
+            }
+
+            log.debug("Publishing change of resource {}, {} events coalesced in total", resource, coalescedEvents.get());
+            publishedEvents.incrementAndGet();
+            try {
+                delegate.onResourceChanged(resource);
+            } catch (RuntimeException e) {
+                log.error("Failed publishing change of resource {}", resource, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.morgan.design.properties.internal;
+
+/**
+ * Set of the distinct property values held by {@link CompactPropertyMap}s, returning the instance already held for a value equal to a given one. Shared by
+ * every generation of a compact {@link ChunkedPropertyMap}, so a value set by a change is held once with the equal values of unchanged chunks.
+ * <p>
+ * Values are held in a single open addressing array, costing one reference per slot rather than an entry object per value, and are never removed: the
+ * owner starts a new set once it holds too many values no longer in use.
+ * </p>
+ */
+final class DistinctValues {
+
+    private static final int MAX_LOAD_PERCENT = 60;
+
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * @return the value held equal to the given one, the given value itself once added if there is none
+     */
+    synchronized String intern(final String value) {
+        int slot = slotOf(this.values, value);
+        if (null != this.values[slot]) {
+            return this.values[slot];
+        }
+        if ((long) (this.size + 1) * 100 > (long) this.values.length * MAX_LOAD_PERCENT) {
+            grow();
+            slot = slotOf(this.values, value);
+        }
+        this.values[slot] = value;
+        this.size++;
+        return value;
+    }
+
+    synchronized int size() {
+        return this.size;
+    }
+
+    private void grow() {
+        final String[] grown = new String[this.values.length << 1];
+        for (final String value : this.values) {
+            if (null != value) {
+                grown[slotOf(grown, value)] = value;
+            }
+        }
+        this.values = grown;
+    }
+
+    /**
+     * @return the slot holding the given value, or the empty slot it would be held in
+     */
+    private static int slotOf(final String[] values, final String value) {
+        final int mask = values.length - 1;
+        int slot = CompactPropertyMap.spread(value.hashCode()) & mask;
+        while (null != values[slot] && !value.equals(values[slot])) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
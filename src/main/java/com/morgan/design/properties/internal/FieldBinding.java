@@ -0,0 +1,134 @@
+package com.morgan.design.properties.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.morgan.design.properties.ReloadableProperty;
+
+/**
+ * A field annotated with {@link ReloadableProperty} together with the property it is bound to, resolved once per class and shared by all its instances.
+ * <p>
+ * Values are written through a {@link MethodHandle} setter created once per field, skipping the access checks of {@link Field#set(Object, Object)}.
+ * <code>int</code>, <code>long</code>, <code>boolean</code> and <code>double</code> fields have typed setters writing the primitive value directly.
+ * </p>
+ */
+final class FieldBinding {
+
+	private enum Kind {
+		REFERENCE, INT, LONG, BOOLEAN, DOUBLE, OTHER_PRIMITIVE
+	}
+
+	private final Field field;
+	private final String property;
+	private final Kind kind;
+	// Setter adapted to (Object bean, field type) so it can be invoked exactly, static fields ignore the bean
+	private final MethodHandle setter;
+
+	/**
+	 * @param field an accessible, non final field
+	 */
+	FieldBinding(final Field field, final String property) {
+		this.field = field;
+		this.property = property;
+		this.kind = kindOf(field.getType());
+
+		try {
+			MethodHandle handle = MethodHandles.lookup()
+				.unreflectSetter(field);
+			if (Modifier.isStatic(field.getModifiers())) {
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			}
+			final Class<?> valueType = Kind.REFERENCE == this.kind || Kind.OTHER_PRIMITIVE == this.kind ? Object.class : field.getType();
+			this.setter = handle.asType(MethodType.methodType(void.class, Object.class, valueType));
+		}
+		catch (final IllegalAccessException e) {
+			throw new IllegalStateException("Field " + field + " is not accessible", e);
+		}
+	}
+
+	Field getField() {
+		return this.field;
+	}
+
+	String getProperty() {
+		return this.property;
+	}
+
+	/**
+	 * Sets the field of the given bean to the given value, unboxing it for primitive fields.
+	 *
+	 * @throws IllegalArgumentException if the value cannot be assigned to the field
+	 */
+	void set(final Object bean, final Object value) {
+		try {
+			switch (this.kind) {
+				case INT:
+					setInt(bean, (Integer) value);
+					break;
+				case LONG:
+					setLong(bean, (Long) value);
+					break;
+				case BOOLEAN:
+					setBoolean(bean, (Boolean) value);
+					break;
+				case DOUBLE:
+					setDouble(bean, (Double) value);
+					break;
+				default:
+					this.setter.invokeExact(bean, value);
+			}
+		}
+		catch (final ClassCastException | NullPointerException e) {
+			throw new IllegalArgumentException(String.format("Cannot set field [%s] of type [%s] to [%s]", this.field.getName(), this.field.getType()
+				.getName(), value), e);
+		}
+		catch (final Throwable e) {
+			throw Throwables.propagate(e);
+		}
+	}
+
+	void setInt(final Object bean, final int value) throws Throwable {
+		this.setter.invokeExact(bean, value);
+	}
+
+	void setLong(final Object bean, final long value) throws Throwable {
+		this.setter.invokeExact(bean, value);
+	}
+
+	void setBoolean(final Object bean, final boolean value) throws Throwable {
+		this.setter.invokeExact(bean, value);
+	}
+
+	void setDouble(final Object bean, final double value) throws Throwable {
+		this.setter.invokeExact(bean, value);
+	}
+
+	private static Kind kindOf(final Class<?> type) {
+		if (int.class == type) {
+			return Kind.INT;
+		}
+		if (long.class == type) {
+			return Kind.LONG;
+		}
+		if (boolean.class == type) {
+			return Kind.BOOLEAN;
+		}
+		if (double.class == type) {
+			return Kind.DOUBLE;
+		}
+		return type.isPrimitive() ? Kind.OTHER_PRIMITIVE : Kind.REFERENCE;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this)
+			.add("field", this.field)
+			.add("property", this.property)
+			.toString();
+	}
+}
@@ -0,0 +1,138 @@
+package com.morgan.design.properties.internal;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Persists the last successfully applied {@link PropertySnapshot} to a local file in the {@link PropertySnapshotFile} format, so a restart can come up
+ * with the properties the application last ran with before its property sources are reachable. The parsed properties of every source are stored
+ * along, so a source still unreachable once the application is up keeps the properties it last had.
+ * <p>
+ * The snapshot is written through {@link PropertySnapshotFile#write(File)}, atomically replacing the previous one, a crash while writing leaves the
+ * previous snapshot intact.
+ * </p>
+ * <p>
+ * Snapshots passed to {@link #storeLater(PropertySnapshot, Map, Map)} are written by a single background thread, a snapshot not yet written when a newer one
+ * arrives is skipped, a burst of changes costs a single write and never holds up the thread applying the changes.
+ * </p>
+ */
+public class LastKnownGoodSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LastKnownGoodSnapshotStore.class);
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final File file;
+    private long storedGeneration = -1;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("properties-snapshot-writer")
+        .setDaemon(true)
+        .build());
+    // Latest snapshot waiting to be written, null once taken by the writer
+    private final AtomicReference<Pending> pending = new AtomicReference<Pending>();
+
+    public LastKnownGoodSnapshotStore(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the last stored snapshot and sources, or null if none was stored or it cannot be read
+     */
+    public PropertySnapshotFile load() {
+        try {
+            return PropertySnapshotFile.read(this.file);
+        } catch (FileNotFoundException e) {
+            log.info("No last known good property snapshot found at {}", this.file);
+        } catch (IOException e) {
+            log.warn("Unable to read last known good property snapshot {}, ignoring it", this.file, e);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the given snapshot and the sources it was built from in the background, replacing any snapshot still waiting to be written. Once closed the
+     * snapshot is stored right away. The given maps must not be modified afterwards.
+     */
+    public void storeLater(final PropertySnapshot snapshot, final Map<Resource, Map<String, String>> sources, final Map<Resource, Long> checksums) {
+        if (null != this.pending.getAndSet(new Pending(snapshot, sources, checksums))) {
+            // A write is already queued and picks up this snapshot
+            return;
+        }
+        try {
+            this.writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    storePending();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            storePending();
+        }
+    }
+
+    private void storePending() {
+        final Pending snapshot = this.pending.getAndSet(null);
+        if (null != snapshot) {
+            store(snapshot.snapshot, snapshot.sources, snapshot.checksums);
+        }
+    }
+
+    /**
+     * Writes any snapshot still waiting and stops the background writer, waiting for the write to complete.
+     */
+    public void close() {
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Timed out writing last known good property snapshot {}", this.file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+
+    /**
+     * Stores the given snapshot unless a snapshot of the same or a later generation was already stored, failures are logged and otherwise ignored as
+     * the live properties are unaffected.
+     */
+    public synchronized void store(final PropertySnapshot snapshot, final Map<Resource, Map<String, String>> sources,
+            final Map<Resource, Long> checksums) {
+        if (snapshot.getGeneration() <= this.storedGeneration) {
+            return;
+        }
+        try {
+            PropertySnapshotFile.of(snapshot, sources, checksums)
+                .write(this.file);
+            this.storedGeneration = snapshot.getGeneration();
+        } catch (IOException e) {
+            log.warn("Unable to store last known good property snapshot {}", this.file, e);
+        }
+    }
+
+    private static final class Pending {
+
+        private final PropertySnapshot snapshot;
+        private final Map<Resource, Map<String, String>> sources;
+        private final Map<Resource, Long> checksums;
+
+        Pending(final PropertySnapshot snapshot, final Map<Resource, Map<String, String>> sources, final Map<Resource, Long> checksums) {
+            this.snapshot = snapshot;
+            this.sources = sources;
+            this.checksums = checksums;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.morgan.design.properties.internal;
+
+import com.google.common.base.Objects;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ResourceUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A resource checked for changes by the {@link ResourcePollingScheduler}. The cheapest available check is chosen for each type of {@link Resource}, see
+ * {@link #forResource(Resource, EventPublisher)}.
+ */
+abstract class PolledResource {
+
+    private static final Logger log = LoggerFactory.getLogger(PolledResource.class);
+
+    private final Resource resource;
+    private final EventPublisher eventPublisher;
+
+    protected PolledResource(final Resource resource, final EventPublisher eventPublisher) {
+        this.resource = resource;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Chooses the check for the given resource:
+     * <ul>
+     * <li>resources on the file system compare size, modification time and real path</li>
+     * <li>entries of a jar only re-read the jar index once the jar file itself changed, comparing the entry CRC and size</li>
+     * <li>http(s) resources issue a conditional HEAD request comparing ETag and Last-Modified</li>
+     * <li>any other URL resource compares its reported modification time and length</li>
+     * </ul>
+     *
+     * @throws IOException if the resource is neither a file nor available as a URL
+     */
+    public static PolledResource forResource(final Resource resource, final EventPublisher eventPublisher) throws IOException {
+        final File file = fileOrNull(resource);
+        if (null != file) {
+            return new FilePolledResource(resource, eventPublisher, file.toPath());
+        }
+        final URL url = resource.getURL();
+        if (ResourceUtils.isJarURL(url)) {
+            return new JarEntryPolledResource(resource, eventPublisher, url);
+        }
+        if ("http".equals(url.getProtocol()) || "https".equals(url.getProtocol())) {
+            return new HttpPolledResource(resource, eventPublisher, url);
+        }
+        return new UrlPolledResource(resource, eventPublisher);
+    }
+
+    /**
+     * @return the file backing the given resource, or null if the resource does not live on the file system
+     */
+    static File fileOrNull(final Resource resource) {
+        try {
+            return resource.getFile();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Checks the resource, publishing a change event if it has changed since the last check.
+     *
+     * @return true if the resource changed
+     */
+    public boolean poll() {
+        try {
+            if (hasChanged()) {
+                log.info("Watched Resource changed, modified resource [{}]", resource);
+                eventPublisher.onResourceChanged(resource);
+                return true;
+            }
+        } catch (IOException e) {
+            log.debug("Unable to check polled resource {}", resource, e);
+        } catch (RuntimeException e) {
+            log.error("Failed publishing change of polled resource {}", resource, e);
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the resource changed since the last call, recording its current state
+     */
+    protected abstract boolean hasChanged() throws IOException;
+
+    private static class FilePolledResource extends PolledResource {
+
+        private final Path path;
+
+        private Path realPath;
+        private Object lastModified;
+        private long size;
+
+        public FilePolledResource(final Resource resource, final EventPublisher eventPublisher, final Path path) throws IOException {
+            super(resource, eventPublisher);
+            this.path = path;
+            hasChanged();
+        }
+
+        @Override
+        protected boolean hasChanged() throws IOException {
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                // Missing for now, e.g. between delete and re-create, reported as changed once it reappears
+                lastModified = null;
+                return false;
+            }
+            final Path currentRealPath = PropertiesWatcher.realPath(path);
+            final boolean changed = !attributes.lastModifiedTime().equals(lastModified) || attributes.size() != size
+                || (null != currentRealPath && !currentRealPath.equals(realPath));
+            realPath = currentRealPath;
+            lastModified = attributes.lastModifiedTime();
+            size = attributes.size();
+            return changed;
+        }
+    }
+
+    private static class JarEntryPolledResource extends PolledResource {
+
+        private final File jarFile;
+        private final String entryName;
+
+        private long jarLastModified;
+        private long jarSize;
+        private long crc;
+        private long size;
+
+        public JarEntryPolledResource(final Resource resource, final EventPublisher eventPublisher, final URL url) throws IOException {
+            super(resource, eventPublisher);
+            final URLConnection connection = url.openConnection();
+            if (!(connection instanceof JarURLConnection)) {
+                throw new FileNotFoundException("Unable to open jar entry " + url);
+            }
+            this.jarFile = ResourceUtils.getFile(((JarURLConnection) connection).getJarFileURL());
+            this.entryName = ((JarURLConnection) connection).getEntryName();
+            hasChanged();
+        }
+
+        @Override
+        protected boolean hasChanged() throws IOException {
+            // Only open the jar once the jar file itself has been rewritten
+            if (jarFile.lastModified() == jarLastModified && jarFile.length() == jarSize) {
+                return false;
+            }
+            jarLastModified = jarFile.lastModified();
+            jarSize = jarFile.length();
+
+            final JarFile jar = new JarFile(jarFile);
+            try {
+                final JarEntry entry = jar.getJarEntry(entryName);
+                final long currentCrc = null == entry ? -1 : entry.getCrc();
+                final long currentSize = null == entry ? -1 : entry.getSize();
+                final boolean changed = currentCrc != crc || currentSize != size;
+                crc = currentCrc;
+                size = currentSize;
+                return changed;
+            } finally {
+                jar.close();
+            }
+        }
+    }
+
+    private static class HttpPolledResource extends PolledResource {
+
+        private final URL url;
+
+        private String eTag;
+        private long lastModified;
+
+        public HttpPolledResource(final Resource resource, final EventPublisher eventPublisher, final URL url) throws IOException {
+            super(resource, eventPublisher);
+            this.url = url;
+            hasChanged();
+        }
+
+        @Override
+        protected boolean hasChanged() throws IOException {
+            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            try {
+                connection.setRequestMethod("HEAD");
+                connection.setUseCaches(false);
+                if (null != eTag) {
+                    connection.setRequestProperty("If-None-Match", eTag);
+                }
+                if (0 != lastModified) {
+                    connection.setIfModifiedSince(lastModified);
+                }
+                if (HttpURLConnection.HTTP_NOT_MODIFIED == connection.getResponseCode()) {
+                    return false;
+                }
+                final String currentETag = connection.getHeaderField("ETag");
+                final long currentLastModified = connection.getLastModified();
+                final boolean changed = !Objects.equal(currentETag, eTag) || currentLastModified != lastModified;
+                eTag = currentETag;
+                lastModified = currentLastModified;
+                return changed;
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static class UrlPolledResource extends PolledResource {
+
+        private long lastModified;
+        private long size;
+
+        public UrlPolledResource(final Resource resource, final EventPublisher eventPublisher) throws IOException {
+            super(resource, eventPublisher);
+            hasChanged();
+        }
+
+        @Override
+        protected boolean hasChanged() throws IOException {
+            final long currentLastModified = getResource().lastModified();
+            final long currentSize = getResource().contentLength();
+            final boolean changed = currentLastModified != lastModified || currentSize != size;
+            lastModified = currentLastModified;
+            size = currentSize;
+            return changed;
+        }
+    }
+}
@@ -1,117 +1,288 @@
 package com.morgan.design.properties.internal;
 
-import org.apache.commons.vfs2.*;
-import org.apache.commons.vfs2.impl.DefaultFileMonitor;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the given resources for modification, publishing a change event to the given {@link EventPublisher} once a resource is modified.
+ * <p>
+ * In {@link WatchMode#NATIVE} mode resources are grouped by parent directory and a single {@link WatchService} thread is started per directory. In
+ * {@link WatchMode#POLLING} mode, intended for filesystems which do not deliver native events (e.g. some network mounts), each resource is registered with a
+ * shared {@link ResourcePollingScheduler} instead.
+ * </p>
+ * <p>
+ * Resources which do not live on the file system, e.g. entries of a jar or remote URLs, are always polled using a cheap conditional check, see
+ * {@link PolledResource}. A resource which cannot be watched at all is logged and skipped without affecting the others.
+ * </p>
+ * <p>
+ * Files replaced by an atomic rename, or whose target changes through a symlink swap (e.g. the <code>..data</code> link of a mounted Kubernetes ConfigMap),
+ * are detected in both modes by re-resolving the real path of each watched file.
+ * </p>
+ */
 public class PropertiesWatcher implements Runnable {
 
     protected static Logger log = LoggerFactory.getLogger(PropertiesWatcher.class);
 
+    // Time allowed for the events of a single write (e.g. truncate then write) to arrive before a watch key is drained
+    private static final long SETTLE_DELAY = 50;
+
     public interface EventPublisher {
         void onResourceChanged(Resource resource);
     }
 
+    public enum WatchMode {
+        NATIVE, POLLING
+    }
+
     private final Resource[] locations;
     private final EventPublisher eventPublisher;
+    private final WatchMode watchMode;
 
-    private final FileSystemManager manager;
-    private final List<ResourceWatcher> resourceWatchers;
-    private final long delay;
+    private final ResourcePollingScheduler pollingScheduler;
+    private final boolean ownsPollingScheduler;
+    private final List<DirectoryWatcher> directoryWatchers;
+    private final List<Resource> polledResources;
 
     public PropertiesWatcher(final Resource[] locations, final EventPublisher eventPublisher, long delay) throws IOException {
+        this(locations, eventPublisher, delay, WatchMode.NATIVE);
+    }
+
+    public PropertiesWatcher(final Resource[] locations, final EventPublisher eventPublisher, long delay, final WatchMode watchMode) throws IOException {
+        this(locations, eventPublisher, watchMode, new ResourcePollingScheduler(1, delay), true);
+    }
+
+    /**
+     * @param pollingScheduler shared scheduler used to poll resources, not shut down when this watcher is stopped
+     */
+    public PropertiesWatcher(final Resource[] locations, final EventPublisher eventPublisher, final WatchMode watchMode,
+                             final ResourcePollingScheduler pollingScheduler) {
+        this(locations, eventPublisher, watchMode, pollingScheduler, false);
+    }
+
+    private PropertiesWatcher(final Resource[] locations, final EventPublisher eventPublisher, final WatchMode watchMode,
+                              final ResourcePollingScheduler pollingScheduler, final boolean ownsPollingScheduler) {
         this.locations = locations;
         this.eventPublisher = eventPublisher;
-        this.manager = VFS.getManager();
-        this.resourceWatchers = new ArrayList<ResourceWatcher>(locations.length);
-        this.delay = delay;
+        this.watchMode = watchMode;
+        this.pollingScheduler = pollingScheduler;
+        this.ownsPollingScheduler = ownsPollingScheduler;
+        this.directoryWatchers = new ArrayList<DirectoryWatcher>();
+        this.polledResources = new ArrayList<Resource>(locations.length);
     }
 
-        @Override
-        public void run() {
-        try {
-            for (final Resource resource : locations) {
-
-                final String path = resource.getFile().getAbsolutePath();
-                log.info("Starting ResourceWatcher on file {}", path);
+    @Override
+    public void run() {
+        start();
+    }
 
-                final FileObject file = manager.resolveFile(path);
-                resourceWatchers.add(new ResourceWatcher(file, resource, delay));
+    /**
+     * Starts watching the given locations, returning once all directory watchers are started and polled resources registered.
+     */
+    public void start() {
+        final List<Resource> files = new ArrayList<Resource>(locations.length);
+        for (final Resource resource : locations) {
+            if (WatchMode.NATIVE == watchMode && null != PolledResource.fileOrNull(resource)) {
+                files.add(resource);
+            } else {
+                // Resources not on the file system (e.g. inside a jar or remote) can only be polled
+                startPolling(resource);
             }
-        } catch (IOException e) {
-            log.error("Unable to create resource watchers", e);
-            stop();
+        }
+        for (final Map.Entry<Path, Map<Path, Resource>> directory : groupByDirectory(files).entrySet()) {
+            startDirectoryWatcher(directory.getKey(), directory.getValue());
         }
     }
 
     public void stop() {
         log.info("Closing File Watching Service");
-        for (ResourceWatcher resourceWatcher : resourceWatchers) {
-            resourceWatcher.defaultFileMonitor.stop();
+        for (DirectoryWatcher directoryWatcher : directoryWatchers) {
+            directoryWatcher.stop();
+        }
+        for (Resource resource : polledResources) {
+            pollingScheduler.unregister(resource);
+        }
+        if (ownsPollingScheduler) {
+            pollingScheduler.shutdown();
         }
 
         log.info("Shutting down Thread Service");
     }
 
-    private void publishResourceChangedEvent(final Resource resource) {
-        this.eventPublisher.onResourceChanged(resource);
+    private Map<Path, Map<Path, Resource>> groupByDirectory(final List<Resource> resources) {
+        final Map<Path, Map<Path, Resource>> directories = Maps.newLinkedHashMap();
+        for (final Resource resource : resources) {
+            final Path path = PolledResource.fileOrNull(resource).toPath().toAbsolutePath();
+            final Path directory = path.getParent();
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, Maps.<Path, Resource>newHashMap());
+            }
+            directories.get(directory).put(path.getFileName(), resource);
+        }
+        return directories;
     }
 
-    private class ResourceWatcher implements FileListener {
+    private void startDirectoryWatcher(final Path directory, final Map<Path, Resource> resources) {
+        try {
+            final DirectoryWatcher directoryWatcher = new DirectoryWatcher(directory, resources);
+            directoryWatchers.add(directoryWatcher);
+            directoryWatcher.start();
+        } catch (IOException e) {
+            log.warn("Unable to register native watch service on directory {}, falling back to polling", directory, e);
+            for (final Resource resource : resources.values()) {
+                startPolling(resource);
+            }
+        }
+    }
 
-        private final FileObject fileObject;
-        private final Resource resource;
-        private final long delay;
+    private void startPolling(final Resource resource) {
+        try {
+            pollingScheduler.register(resource, eventPublisher);
+            polledResources.add(resource);
+        } catch (IOException e) {
+            // A single resource which cannot be watched must not stop the others being watched
+            log.warn("Unable to watch resource {}, changes to it will not be reloaded", resource, e);
+        }
+    }
 
-        private DefaultFileMonitor defaultFileMonitor;
+    private void publishResourceChangedEvent(final Resource resource) {
+        this.eventPublisher.onResourceChanged(resource);
+    }
 
-        public ResourceWatcher(final FileObject fileObject, final Resource resource, final long delay) {
-            this.fileObject = fileObject;
-            this.resource = resource;
-            this.delay = delay;
-            init();
+    /**
+     * @return the real path of the given file with all symlinks resolved, or null if it does not currently exist
+     */
+    static Path realPath(final Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return null;
         }
+    }
+
+    /**
+     * Watches a single directory on its own thread, publishing change events for the watched resources it contains.
+     */
+    private class DirectoryWatcher implements Runnable {
+
+        private final Path directory;
+        private final Map<Path, Resource> resources;
+        private final Map<Path, Path> realPaths;
+        private final WatchService watchService;
+        private final Thread thread;
 
-        public void init() {
+        public DirectoryWatcher(final Path directory, final Map<Path, Resource> resources) throws IOException {
+            this.directory = directory;
+            this.resources = resources;
+            this.realPaths = Maps.newHashMap();
+            for (final Path fileName : resources.keySet()) {
+                realPaths.put(fileName, realPath(directory.resolve(fileName)));
+            }
+            this.watchService = directory.getFileSystem().newWatchService();
             try {
-                log.info("START");
-                log.info("Watching for modification events for path {}", this.fileObject.getName().getFriendlyURI());
-
-                defaultFileMonitor = new DefaultFileMonitor(this);
-                defaultFileMonitor.setChecksPerRun(1);
-                defaultFileMonitor.setDelay(delay);
-                defaultFileMonitor.addFile(fileObject);
-                defaultFileMonitor.start();
-            } catch (Exception e) {
-                log.info("Exception thrown when watching resources, path {}\nException:", this.fileObject.getName().getFriendlyURI(), e);
-                stop();
+                directory.register(watchService, ENTRY_MODIFY, ENTRY_CREATE);
+            } catch (IOException e) {
+                watchService.close();
+                throw e;
             }
+            this.thread = new Thread(this, "PropertiesWatcher-" + directory.getFileName());
+            this.thread.setDaemon(true);
         }
 
-        @Override
-        public void fileCreated(FileChangeEvent event) throws Exception {
-            // We don't care about this
-            log.debug("File created {}", this.fileObject.getName().getFriendlyURI());
+        public void start() {
+            log.info("Watching for modification events in directory {} for files {}", directory, resources.keySet());
+            thread.start();
         }
 
-        @Override
-        public void fileDeleted(FileChangeEvent event) throws Exception {
-            // We don't care about this
-            log.debug("File deleted {}", this.fileObject.getName().getFriendlyURI());
+        public void stop() {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Unable to close watch service for directory {}", directory, e);
+            }
+            thread.interrupt();
         }
 
         @Override
-        public void fileChanged(FileChangeEvent event) throws Exception {
-            log.info("Watched Resource changed, modified file [{}]", this.fileObject.getName().getFriendlyURI());
-            log.info("  Event Kind [{}]", "CHANGED");
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key;
+                try {
+                    key = watchService.take();
+                    Thread.sleep(SETTLE_DELAY);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ClosedWatchServiceException e) {
+                    break;
+                }
+
+                // A single write commonly produces several events, only publish once per resource for each batch
+                final Set<Resource> changed = Sets.newLinkedHashSet();
+                boolean otherEntriesChanged = false;
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (OVERFLOW == event.kind()) {
+                        log.warn("Watch events lost for directory {}, treating all watched files as changed", directory);
+                        changed.addAll(resources.values());
+                        continue;
+                    }
+                    final Path fileName = (Path) event.context();
+                    final Resource resource = resources.get(fileName);
+                    if (null != resource) {
+                        log.info("Watched Resource changed, modified file [{}]", fileName);
+                        log.info("  Event Kind [{}]", event.kind());
+                        realPaths.put(fileName, realPath(directory.resolve(fileName)));
+                        changed.add(resource);
+                    } else {
+                        otherEntriesChanged = true;
+                    }
+                }
 
-            publishResourceChangedEvent(resource);
+                // Another entry of the directory changed, e.g. a symlink swapped, check whether any watched file now points at a new target
+                if (otherEntriesChanged) {
+                    changed.addAll(retargetedResources());
+                }
+
+                for (final Resource resource : changed) {
+                    publishResourceChangedEvent(resource);
+                }
+
+                if (!key.reset()) {
+                    log.warn("Directory {} is no longer accessible, stopping watcher", directory);
+                    break;
+                }
+            }
+            log.info("Stopped watching directory {}", directory);
+        }
+
+        private Set<Resource> retargetedResources() {
+            final Set<Resource> retargeted = Sets.newLinkedHashSet();
+            for (final Map.Entry<Path, Resource> watched : resources.entrySet()) {
+                final Path realPath = realPath(directory.resolve(watched.getKey()));
+                final Path previousRealPath = realPaths.put(watched.getKey(), realPath);
+                if (null != realPath && !realPath.equals(previousRealPath)) {
+                    log.info("Watched Resource [{}] now resolves to [{}]", watched.getKey(), realPath);
+                    retargeted.add(watched.getValue());
+                }
+            }
+            return retargeted;
         }
     }
 
@@ -1,5 +1,8 @@
 package com.morgan.design.properties.internal;
 
+import java.util.Map;
+import java.util.SortedMap;
+
 /**
  * Interface to access and change properties.
  *
@@ -18,6 +21,27 @@ public interface PropertyAccessor {
      */
     void setProperty(String property, String newValue);
 
+    /**
+     * Sets all given properties to their new values as a single change, either every property is changed or, if any is not found or a value cannot be
+     * converted for a field bound to it, none is.
+     *
+     * @param newValues New values keyed by property name
+     *
+     * @throws com.morgan.design.properties.exception.PropertyNotFoundException If any of the properties is not found
+     */
+    void setProperties(Map<String, String> newValues);
+
+    /**
+     * Clears the value set at runtime for the property, falling back to the value of the locations defining it, if any. Does nothing if no value was
+     * set at runtime.
+     *
+     * @param property Name of the property
+     *
+     * @throws com.morgan.design.properties.exception.CircularPropertyReferenceException If the fallback value introduces a reference cycle, the runtime
+     *             value is kept
+     */
+    void clearProperty(String property);
+
     /**
      *  Retrieves the property with the given name.
      *
@@ -38,4 +62,12 @@ public interface PropertyAccessor {
      * @throws com.morgan.design.properties.exception.PropertyNotFoundException If the property is not found
      */
     String getParsedProperty(String property);
+
+    /**
+     * Retrieves all properties whose name starts with the given prefix in a single call, without scanning the complete property set.
+     *
+     * @param prefix Prefix of the property names, e.g. <code>service.payments.</code>
+     * @return Immutable properties starting with the prefix, sorted by name, read from the current generation
+     */
+    SortedMap<String, String> getPropertiesWithPrefix(String prefix);
 }
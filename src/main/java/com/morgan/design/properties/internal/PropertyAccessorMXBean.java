@@ -7,4 +7,44 @@ package com.morgan.design.properties.internal;
  * @since 6/12/13
  */
 public interface PropertyAccessorMXBean extends PropertyAccessor {
+
+    /**
+     * @return the generation of the current property snapshot, increased by every committed change
+     */
+    long getGeneration();
+
+    /**
+     * @return the number of threads polling watched resources, 0 if not watching
+     */
+    int getActivePollingThreadCount();
+
+    /**
+     * @return the time in ms taken by the last resource polling tick
+     */
+    long getLastPollingTickDuration();
+
+    /**
+     * @return the number of resource change events merged into an already pending reload
+     */
+    long getCoalescedEventCount();
+
+    /**
+     * @return the number of resource change events ignored as the resource content was unchanged
+     */
+    long getSkippedReloadCount();
+
+    /**
+     * @return the number of resource reloads performed
+     */
+    long getPerformedReloadCount();
+
+    /**
+     * @return the number of property conversions skipped on reload as fields of the same type bound to the same property shared one converted value
+     */
+    long getSavedConversionCount();
+
+    /**
+     * @return the number of fields of live beans bound to a property, fields of collected beans are no longer counted once unsubscribed
+     */
+    long getLiveBindingCount();
 }
@@ -0,0 +1,21 @@
+package com.morgan.design.properties.internal;
+
+import java.util.List;
+
+import com.morgan.design.properties.bean.PropertyModifiedEvent;
+
+/**
+ * Checks a batch of property changes before it is published, e.g. that every field bound to a modified property can take its new value.
+ */
+public interface PropertyChangeValidator {
+
+	/**
+	 * Called on the thread setting the properties, before the candidate snapshot is published or any event posted.
+	 *
+	 * @param candidate the snapshot to be published, to resolve the new values against
+	 * @param modifications every property the batch modifies, properties referring to them through placeholders included
+	 * @throws RuntimeException if the batch must not be published, it is then rethrown to the caller setting the properties and no property changes
+	 */
+	void validate(PropertySnapshot candidate, List<PropertyModifiedEvent> modifications);
+
+}
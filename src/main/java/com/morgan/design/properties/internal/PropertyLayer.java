@@ -0,0 +1,29 @@
+package com.morgan.design.properties.internal;
+
+/**
+ * Ordered layers of property sources, lowest precedence first. A property defined in a higher layer overrides the same property in every lower layer,
+ * within a layer later locations override earlier ones.
+ */
+public enum PropertyLayer {
+
+    /**
+     * Application defaults shipped with the code, see <code>defaultLocations</code>
+     */
+    DEFAULTS,
+
+    /**
+     * Environment specific files, see <code>locations</code>
+     */
+    ENVIRONMENT,
+
+    /**
+     * Overrides for a single host, see <code>hostOverrideLocations</code>
+     */
+    HOST_OVERRIDES,
+
+    /**
+     * Values set at runtime through {@link PropertyAccessor}, e.g. over JMX, dropped once a reloaded file of the highest precedence
+     * defining the key changes it
+     */
+    RUNTIME_OVERRIDES
+}
@@ -0,0 +1,175 @@
+package com.morgan.design.properties.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.morgan.design.properties.resolver.PropertyResolutionGraph;
+import com.morgan.design.properties.resolver.PropertyResolver;
+
+/**
+ * Immutable view of the complete property set at one point in time. Every change to the properties builds a new snapshot which replaces the previous one
+ * in a single reference swap, readers therefore never lock and never see a partially applied change.
+ * <p>
+ * Each snapshot carries a generation, increasing by one with every committed change. Related properties read from one snapshot always come from the same
+ * generation, and consumers caching derived values can compare generations instead of values to detect staleness.
+ * </p>
+ * <p>
+ * Placeholder references between properties are compiled into a {@link PropertyResolutionGraph} alongside the values, so resolving a property costs a
+ * single lookup and a snapshot containing a reference cycle can never be built.
+ * </p>
+ * <p>
+ * Values are held in a {@link ChunkedPropertyMap} and keys are also kept sorted in {@link SortedKeys} chunks, a new generation copies only the chunks
+ * holding changed keys and shares every other chunk with the previous generation. Very large property sets can hold each chunk compactly in a
+ * {@link CompactPropertyMap}, every later generation keeps the storage of the first one.
+ * </p>
+ * <p>
+ * A namespace such as <code>service.payments.</code> is found by binary search over the sorted keys and read without scanning other keys.
+ * </p>
+ */
+public final class PropertySnapshot {
+
+    private final long generation;
+    private final ChunkedPropertyMap properties;
+    private final SortedKeys sortedKeys;
+    private final PropertyResolutionGraph resolutionGraph;
+
+    private PropertySnapshot(final long generation, final ChunkedPropertyMap properties, final SortedKeys sortedKeys,
+            final PropertyResolutionGraph resolutionGraph) {
+        this.generation = generation;
+        this.properties = properties;
+        this.sortedKeys = sortedKeys;
+        this.resolutionGraph = resolutionGraph;
+    }
+
+    /**
+     * @throws com.morgan.design.properties.exception.CircularPropertyReferenceException if the given properties refer to each other in a cycle
+     */
+    public static PropertySnapshot of(final Properties properties, final PropertyResolver propertyResolver) {
+        return of(properties, propertyResolver, false);
+    }
+
+    /**
+     * @param compact whether to hold the properties in {@link CompactPropertyMap} chunks rather than {@link java.util.HashMap}s
+     * @throws com.morgan.design.properties.exception.CircularPropertyReferenceException if the given properties refer to each other in a cycle
+     */
+    public static PropertySnapshot of(final Properties properties, final PropertyResolver propertyResolver, final boolean compact) {
+        final Map<String, String> copy = Maps.newHashMapWithExpectedSize(properties.size());
+        for (final String property : properties.stringPropertyNames()) {
+            copy.put(property, properties.getProperty(property));
+        }
+        final ChunkedPropertyMap stored = ChunkedPropertyMap.copyOf(copy, compact);
+        return new PropertySnapshot(1, stored, SortedKeys.of(stored.keySet()), PropertyResolutionGraph.build(stored, propertyResolver));
+    }
+
+    /**
+     * Builds a snapshot from properties compiled ahead of time, neither sorting the keys nor resolving any placeholder.
+     *
+     * @param sortedKeys every key of the given properties in natural order
+     * @param references the property each referring property refers to, as built for the given properties
+     * @param resolvedValues the resolved value of each referring property resolving to a value
+     */
+    static PropertySnapshot precompiled(final List<String> sortedKeys, final Map<String, String> properties, final Map<String, String> references,
+            final Map<String, String> resolvedValues, final PropertyResolver propertyResolver, final boolean compact) {
+        final ChunkedPropertyMap stored = ChunkedPropertyMap.copyOf(properties, compact);
+        return new PropertySnapshot(1, stored, SortedKeys.ofSorted(sortedKeys), PropertyResolutionGraph.precompiled(stored, propertyResolver, references,
+                resolvedValues));
+    }
+
+    /**
+     * @return a new snapshot of the next generation with the given properties set to their new values and the given properties removed, sharing the
+     *         storage of unchanged properties with this snapshot, which is left unchanged
+     * @throws com.morgan.design.properties.exception.CircularPropertyReferenceException if the changes introduce a reference cycle
+     */
+    public PropertySnapshot withChanges(final Map<String, String> modified, final Set<String> removed) {
+        final List<String> added = Lists.newArrayList();
+        for (final String property : modified.keySet()) {
+            if (!this.properties.containsKey(property)) {
+                added.add(property);
+            }
+        }
+        final ChunkedPropertyMap stored = this.properties.withChanges(modified, removed);
+        return new PropertySnapshot(this.generation + 1, stored, this.sortedKeys.withChanges(added, removed), this.resolutionGraph.update(stored,
+                Sets.union(modified.keySet(), removed)));
+    }
+
+    /**
+     * @return the properties whose name starts with the given prefix, sorted by name, in O(log n + k) for k matching properties
+     */
+    public SortedMap<String, String> getPropertiesWithPrefix(final String prefix) {
+        final ImmutableSortedMap.Builder<String, String> namespace = ImmutableSortedMap.naturalOrder();
+        for (final String property : this.sortedKeys.withPrefix(prefix)) {
+            namespace.put(property, this.properties.get(property));
+        }
+        return namespace.build();
+    }
+
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * @return the value of the given property, or null if it does not exist
+     */
+    public String getProperty(final String property) {
+        return this.properties.get(property);
+    }
+
+    /**
+     * @return the value of the given property with any placeholder references followed, or null if it, or a property it refers to, does not exist
+     */
+    public String resolveProperty(final String property) {
+        return this.resolutionGraph.getResolvedValue(property);
+    }
+
+    /**
+     * @return every property whose value transitively refers to any of the given properties through a placeholder
+     */
+    public Set<String> getDependents(final Set<String> properties) {
+        return this.resolutionGraph.getDependents(properties);
+    }
+
+    /**
+     * @return every key in natural order
+     */
+    List<String> getSortedKeys() {
+        return this.sortedKeys.withPrefix("");
+    }
+
+    /**
+     * @return the property each property referring to another through a placeholder refers to
+     */
+    Map<String, String> getReferences() {
+        return this.resolutionGraph.getReferences();
+    }
+
+    public boolean containsProperty(final String property) {
+        return this.properties.containsKey(property);
+    }
+
+    /**
+     * @return an unmodifiable view of all properties of this snapshot
+     */
+    public Map<String, String> getProperties() {
+        return this.properties;
+    }
+
+    public int size() {
+        return this.properties.size();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+            .add("generation", this.generation)
+            .add("size", this.properties.size())
+            .toString();
+    }
+}
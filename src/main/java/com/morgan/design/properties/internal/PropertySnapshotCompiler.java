@@ -0,0 +1,58 @@
+package com.morgan.design.properties.internal;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+/**
+ * Command line tool creating the file of a configurer's <code>precompiledSnapshot</code> ahead of time, e.g. as part of a build, so even the first
+ * start of an application neither parses its properties files nor resolves their placeholders.
+ *
+ * <pre>
+ * java com.morgan.design.properties.internal.PropertySnapshotCompiler &lt;snapshot file&gt; &lt;location&gt;...
+ * </pre>
+ *
+ * Locations are Spring resource locations of the environment layer in declaration order, plain paths are read from the file system and
+ * <code>classpath:</code> locations from the classpath. Placeholders are resolved by substitution, as with the default configuration. An application
+ * setting local properties or other layers still reuses every unchanged source and compiles its own snapshot on first start.
+ */
+public final class PropertySnapshotCompiler {
+
+    private final ResourceLoader resourceLoader;
+
+    public PropertySnapshotCompiler(final ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PropertySnapshotCompiler <snapshot file> <location>...");
+            System.exit(1);
+        }
+        final String[] locations = new String[args.length - 1];
+        System.arraycopy(args, 1, locations, 0, locations.length);
+
+        final PropertySnapshotFile snapshotFile = new PropertySnapshotCompiler(new FileSystemResourceLoader()).compile(locations);
+        snapshotFile.write(new File(args[0]));
+        System.out.println("Compiled " + snapshotFile.getProperties()
+            .size() + " properties of " + locations.length + " locations into " + args[0]);
+    }
+
+    public PropertySnapshotFile compile(final String... locations) throws IOException {
+        final Resource[] resources = new Resource[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            resources[i] = this.resourceLoader.getResource(locations[i]);
+        }
+        final ReadablePropertySourcesPlaceholderConfigurer configurer = new ReadablePropertySourcesPlaceholderConfigurer(null,
+                new SubstitutingPropertyResolver(), new DefaultPropertyConversionService());
+        configurer.setLocations(resources);
+        configurer.mergeProperties();
+        return configurer.compileSnapshot();
+    }
+}
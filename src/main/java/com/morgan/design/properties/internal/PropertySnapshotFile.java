@@ -0,0 +1,372 @@
+package com.morgan.design.properties.internal;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.springframework.core.io.Resource;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.morgan.design.properties.resolver.PropertyResolver;
+
+/**
+ * Binary file holding a compiled {@link PropertySnapshot} together with the parsed properties of the sources it was built from, read through a memory
+ * mapping.
+ * <p>
+ * Each source is held by URI with a CRC32 checksum of its content, so a source whose content is unchanged is taken from the file instead of being
+ * parsed. The compiled snapshot holds every property in key order with the property it refers to and its resolved value, so a snapshot of the same
+ * properties is rebuilt without sorting its keys or resolving any placeholder.
+ * </p>
+ * <p>
+ * Layout, all numbers big endian and strings as an int byte length followed by UTF-8 bytes, a length of -1 standing for no string:
+ * </p>
+ *
+ * <pre>
+ * int magic, int version
+ * int source count, per source: string uri, long crc32, int property count, per property: string key, string value
+ * int property count, per property in key order: string key, string value, string reference, string resolved value
+ * </pre>
+ */
+public final class PropertySnapshotFile {
+
+    private static final int MAGIC = 0x52505342;
+    private static final int VERSION = 2;
+    // Property values may be secrets, only the owner may read the file
+    private static final FileAttribute<Set<PosixFilePermission>> OWNER_ONLY = PosixFilePermissions.asFileAttribute(PosixFilePermissions
+        .fromString("rw-------"));
+
+    // Parsed properties and checksum per source URI, in the order written
+    private final Map<String, Long> checksums = Maps.newLinkedHashMap();
+    private final Map<String, Map<String, String>> sources = Maps.newLinkedHashMap();
+
+    // The compiled snapshot, keys in natural order
+    private final List<String> keys;
+    private final Map<String, String> properties;
+    private final Map<String, String> references;
+    private final Map<String, String> resolvedValues;
+
+    private PropertySnapshotFile(final List<String> keys, final Map<String, String> properties, final Map<String, String> references,
+            final Map<String, String> resolvedValues) {
+        this.keys = keys;
+        this.properties = properties;
+        this.references = references;
+        this.resolvedValues = resolvedValues;
+    }
+
+    /**
+     * @return a file of the given snapshot, holding no sources until added
+     */
+    public static PropertySnapshotFile of(final PropertySnapshot snapshot) {
+        final Map<String, String> references = snapshot.getReferences();
+        final Map<String, String> resolvedValues = Maps.newHashMapWithExpectedSize(references.size());
+        for (final String property : references.keySet()) {
+            final String resolved = snapshot.resolveProperty(property);
+            if (null != resolved) {
+                resolvedValues.put(property, resolved);
+            }
+        }
+        return new PropertySnapshotFile(snapshot.getSortedKeys(), snapshot.getProperties(), references, resolvedValues);
+    }
+
+    /**
+     * @return a file of the given snapshot holding the given sources, those without a checksum left out
+     */
+    public static PropertySnapshotFile of(final PropertySnapshot snapshot, final Map<Resource, Map<String, String>> sources,
+            final Map<Resource, Long> checksums) {
+        final PropertySnapshotFile snapshotFile = of(snapshot);
+        for (final Map.Entry<Resource, Map<String, String>> source : sources.entrySet()) {
+            final Long checksum = checksums.get(source.getKey());
+            if (null != checksum) {
+                snapshotFile.put(uriOf(source.getKey()), checksum, source.getValue());
+            }
+        }
+        return snapshotFile;
+    }
+
+    /**
+     * @return the URI sources of the given resource are held by
+     */
+    public static String uriOf(final Resource resource) {
+        try {
+            return resource.getURI()
+                .toString();
+        } catch (IOException e) {
+            return resource.getDescription();
+        }
+    }
+
+    /**
+     * @throws FileNotFoundException if the file does not exist
+     * @throws IOException if the file cannot be read or is not a property snapshot file of a supported version
+     */
+    public static PropertySnapshotFile read(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a property snapshot file of version " + VERSION + ": " + file);
+            }
+
+            final Map<String, Long> checksums = Maps.newLinkedHashMap();
+            final Map<String, Map<String, String>> sources = Maps.newLinkedHashMap();
+            for (int count = buffer.getInt(); count > 0; count--) {
+                final String uri = readString(buffer);
+                checksums.put(uri, buffer.getLong());
+                final int size = buffer.getInt();
+                final Map<String, String> source = Maps.newHashMapWithExpectedSize(size);
+                for (int i = 0; i < size; i++) {
+                    source.put(readString(buffer), readString(buffer));
+                }
+                sources.put(uri, source);
+            }
+
+            final int size = buffer.getInt();
+            final List<String> keys = Lists.newArrayListWithCapacity(size);
+            final Map<String, String> properties = Maps.newHashMapWithExpectedSize(size);
+            final Map<String, String> references = Maps.newHashMap();
+            final Map<String, String> resolvedValues = Maps.newHashMap();
+            for (int i = 0; i < size; i++) {
+                final String key = readString(buffer);
+                keys.add(key);
+                properties.put(key, readString(buffer));
+                final String reference = readString(buffer);
+                if (null != reference) {
+                    references.put(key, reference);
+                }
+                final String resolved = readString(buffer);
+                if (null != resolved) {
+                    resolvedValues.put(key, resolved);
+                }
+            }
+
+            final PropertySnapshotFile snapshotFile = new PropertySnapshotFile(keys, properties, references, resolvedValues);
+            for (final Map.Entry<String, Long> checksum : checksums.entrySet()) {
+                snapshotFile.put(checksum.getKey(), checksum.getValue(), sources.get(checksum.getKey()));
+            }
+            return snapshotFile;
+        } catch (RuntimeException e) {
+            // Truncated or corrupted content
+            throw new IOException("Corrupt property snapshot file " + file, e);
+        } finally {
+            Closeables.closeQuietly(randomAccessFile);
+        }
+    }
+
+    /**
+     * Adds or replaces the parsed properties of the given source, whose content has the given checksum.
+     */
+    public void put(final String uri, final long checksum, final Map<String, String> sourceProperties) {
+        this.checksums.put(uri, checksum);
+        this.sources.put(uri, Collections.unmodifiableMap(sourceProperties));
+    }
+
+    /**
+     * @return the properties of the given source if held with the given checksum, or null if not held or held for different content
+     */
+    public Map<String, String> getSource(final String uri, final long checksum) {
+        final Long held = this.checksums.get(uri);
+        return null != held && held == checksum ? this.sources.get(uri) : null;
+    }
+
+    /**
+     * @return the properties of the given source as last held, whatever its current content, or null if not held
+     */
+    public Map<String, String> getSource(final String uri) {
+        return this.sources.get(uri);
+    }
+
+    /**
+     * @return the URIs of the sources held, in the order added
+     */
+    public List<String> getSourceUris() {
+        return Lists.newArrayList(this.sources.keySet());
+    }
+
+    /**
+     * @return the raw values of every property of the compiled snapshot
+     */
+    public Map<String, String> getProperties() {
+        return Collections.unmodifiableMap(this.properties);
+    }
+
+    /**
+     * @return a snapshot of the given properties built from the compiled snapshot, or null if they differ from the properties it was compiled from
+     */
+    public PropertySnapshot toSnapshot(final Properties merged, final PropertyResolver propertyResolver, final boolean compact) {
+        if (merged.size() != this.keys.size()) {
+            return null;
+        }
+        for (final String key : this.keys) {
+            if (!this.properties.get(key)
+                .equals(merged.get(key))) {
+                return null;
+            }
+        }
+        return PropertySnapshot.precompiled(this.keys, this.properties, this.references, this.resolvedValues, propertyResolver, compact);
+    }
+
+    /**
+     * Writes this snapshot to a temporary file in the directory of the given file, readable by its owner only, forces it to disk and atomically renames
+     * it over the given file, then forces the directory so the rename itself survives a crash. A crash while writing leaves any previous content intact.
+     */
+    public void write(final File file) throws IOException {
+        final File directory = file.getAbsoluteFile()
+            .getParentFile();
+        final File temporary = new File(directory, file.getName() + ".tmp");
+        try {
+            createOwnerOnly(temporary.toPath());
+            writeTo(temporary);
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        forceDirectory(directory);
+    }
+
+    private static void createOwnerOnly(final Path path) throws IOException {
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, OWNER_ONLY);
+        } catch (UnsupportedOperationException e) {
+            // No POSIX permissions, e.g. on Windows
+            final File file = Files.createFile(path)
+                .toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+        }
+    }
+
+    private static void forceDirectory(final File directory) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened or forced on every platform, the rename is then as durable as the file system makes it
+        } finally {
+            Closeables.closeQuietly(channel);
+        }
+    }
+
+    private void writeTo(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            channel.truncate(0);
+            final Output output = new Output(channel);
+            output.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(this.sources.size());
+            for (final Map.Entry<String, Map<String, String>> source : this.sources.entrySet()) {
+                output.putString(source.getKey())
+                    .putLong(this.checksums.get(source.getKey()))
+                    .putInt(source.getValue()
+                        .size());
+                for (final Map.Entry<String, String> property : source.getValue()
+                    .entrySet()) {
+                    output.putString(property.getKey())
+                        .putString(property.getValue());
+                }
+            }
+            output.putInt(this.keys.size());
+            for (final String key : this.keys) {
+                output.putString(key)
+                    .putString(this.properties.get(key))
+                    .putString(this.references.get(key))
+                    .putString(this.resolvedValues.get(key));
+            }
+            output.flush();
+            channel.force(true);
+        } finally {
+            Closeables.closeQuietly(randomAccessFile);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * Buffered writer of the numbers and strings of the layout.
+     */
+    private static final class Output {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        Output putInt(final int value) throws IOException {
+            ensureRemaining(4);
+            this.buffer.putInt(value);
+            return this;
+        }
+
+        Output putLong(final long value) throws IOException {
+            ensureRemaining(8);
+            this.buffer.putLong(value);
+            return this;
+        }
+
+        Output putString(final String value) throws IOException {
+            if (null == value) {
+                return putInt(-1);
+            }
+            final byte[] bytes = value.getBytes(Charsets.UTF_8);
+            ensureRemaining(4 + bytes.length);
+            this.buffer.putInt(bytes.length)
+                .put(bytes);
+            return this;
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        private void ensureRemaining(final int length) throws IOException {
+            if (this.buffer.remaining() < length) {
+                flush();
+                if (this.buffer.capacity() < length) {
+                    this.buffer = ByteBuffer.allocate(length);
+                }
+            }
+        }
+    }
+}
@@ -1,29 +1,68 @@
 package com.morgan.design.properties.internal;
 
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
 import com.morgan.design.properties.bean.PropertyModifiedEvent;
 import com.morgan.design.properties.conversion.PropertyConversionService;
 import com.morgan.design.properties.event.PropertyChangedEventNotifier;
+import com.morgan.design.properties.event.PropertyNamespaceListener;
+import com.morgan.design.properties.exception.CircularPropertyReferenceException;
 import com.morgan.design.properties.exception.PropertyNotFoundException;
 import com.morgan.design.properties.exception.PropertyParsingException;
+import com.morgan.design.properties.internal.ChecksumFilteringEventPublisher.Reloader;
 import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+import com.morgan.design.properties.internal.PropertiesWatcher.WatchMode;
+import com.morgan.design.properties.internal.WildcardResourceDiscoverer.DiscoveryListener;
+import com.morgan.design.properties.parser.PropertiesParser;
+import com.morgan.design.properties.parser.PropertiesParser.PropertyHandler;
 import com.morgan.design.properties.resolver.PropertyResolver;
+import com.morgan.design.util.ChecksumUtils;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapDifference;
+import com.google.common.collect.Maps;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.DefaultPropertiesPersister;
+import org.springframework.util.PropertiesPersister;
+import org.springframework.util.StringUtils;
 
 import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * Specialisation of {@link PropertySourcesPlaceholderConfigurer} that can react to changes in the resources specified. The watching process does not start by
@@ -31,7 +70,8 @@ import java.util.concurrent.Executors;
  *
  * @author James Morgan
  */
-public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySourcesPlaceholderConfigurer implements EventPublisher, PropertyAccessorMXBean {
+public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySourcesPlaceholderConfigurer implements EventPublisher, Reloader,
+		DiscoveryListener, PropertyAccessorMXBean, DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(ReadablePropertySourcesPlaceholderConfigurer.class);
     private static final String MXBEAN_NAME = PropertyAccessor.class.getPackage().getName() + ":type="  + PropertyAccessor.class.getSimpleName();
@@ -40,9 +80,62 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
 	private final PropertyResolver propertyResolver;
     private final PropertyConversionService propertyConversionService;
 
-	private Properties properties;
-	private Resource[] locations;
+	private volatile PropertySnapshot propertySnapshot;
+	private final Map<PropertyLayer, Resource[]> layerLocations = new EnumMap<PropertyLayer, Resource[]>(PropertyLayer.class);
+    private String[] discoveryLocations;
     private long delay = 10000;
+    private WatchMode watchMode = WatchMode.NATIVE;
+    private int pollingThreadCount = 1;
+    private long pollingMinDelay;
+    private long pollingMaxDelay;
+    private Map<String, String> pollingDelays = Collections.emptyMap();
+    private long debounceQuietPeriod = 200;
+    private long debounceMaxWait = 2000;
+    private boolean compactStorage;
+    private Resource lastKnownGoodSnapshot;
+    private Resource precompiledSnapshot;
+    // Read on a start without last known good properties, released once the snapshot is built
+    private PropertySnapshotFile precompiled;
+    private boolean precompiledOutdated;
+    private LastKnownGoodSnapshotStore lastKnownGoodStore;
+    // Last known good properties and sources started with, released once reconciled
+    private PropertySnapshotFile lastKnownGood;
+    private final Object reconcileLock = new Object();
+    private boolean reconcilePending;
+    // Locations which could not be loaded when reconciling, keeping their last known good keys until reloaded
+    private final Set<Resource> heldLocations = Sets.newHashSet();
+
+    private volatile ResourcePollingScheduler pollingScheduler;
+    private DebouncingEventPublisher debouncingEventPublisher;
+    private ChecksumFilteringEventPublisher checksumFilteringEventPublisher;
+    // Guarded by this, set once the watches are registered on the polling scheduler
+    private PropertiesWatcher propertiesWatcher;
+    private boolean reconciling;
+    private boolean watchPending;
+    private boolean destroyed;
+    private EventPublisher eventPublisher;
+    private WildcardResourceDiscoverer resourceDiscoverer;
+    private String fileEncoding;
+    private boolean ignoreResourceNotFound;
+    private PropertiesPersister propertiesPersister = new DefaultPropertiesPersister();
+    private final PropertiesParser propertiesParser = new PropertiesParser();
+
+    // Last loaded key/values of each resource, per layer in declaration order, followed by discovered resources in discovery order
+    private final Map<PropertyLayer, Map<Resource, Map<String, String>>> layerSnapshots = new EnumMap<PropertyLayer, Map<Resource, Map<String, String>>>(
+            PropertyLayer.class);
+    private final Map<Resource, Map<String, String>> discoveredSnapshots = Maps.newLinkedHashMap();
+    // Checksum of the content each resource was last read from by readSources, compared against once it is watched
+    private final Map<Resource, Long> loadedChecksums = Maps.newHashMap();
+    // Properties set on the configurer itself, ranked above every location with localOverride, otherwise below every resource
+    private Map<String, String> localSnapshot = Collections.emptyMap();
+    // The RUNTIME_OVERRIDES layer
+    private final Map<String, String> runtimeOverrides = Maps.newHashMap();
+    private final SetMultimap<String, PropertyNamespaceListener> namespaceListeners = HashMultimap.create();
+    private final List<PropertyChangeValidator> changeValidators = new CopyOnWriteArrayList<PropertyChangeValidator>();
+    private boolean mBeanRegistered;
+    // Conversions skipped by bound fields sharing the value converted for another field of the same type
+    private final AtomicLong savedConversionCount = new AtomicLong();
+    private final AtomicLong liveBindingCount = new AtomicLong();
 
 	@Autowired
 	public ReadablePropertySourcesPlaceholderConfigurer(final PropertyChangedEventNotifier eventNotifier,
@@ -51,51 +144,374 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
 		this.eventNotifier = eventNotifier;
 		this.propertyResolver = propertyResolver;
         this.propertyConversionService = propertyConversionService;
+        this.propertySnapshot = PropertySnapshot.of(new Properties(), propertyResolver);
     }
 
 	@Override
 	protected void loadProperties(final Properties props) throws IOException {
-		super.loadProperties(props);
-		this.properties = props;
+		this.localSnapshot = mergeLocalProperties();
+		if (null != this.discoveryLocations) {
+			this.resourceDiscoverer = new WildcardResourceDiscoverer(this.discoveryLocations, new PathMatchingResourcePatternResolver(), this);
+		}
+		if (null != this.lastKnownGoodStore) {
+			// Loaded again, let the previous store finish its write before the new one reads the file
+			this.lastKnownGoodStore.close();
+		}
+		if (null != this.lastKnownGoodSnapshot) {
+			this.lastKnownGoodStore = new LastKnownGoodSnapshotStore(this.lastKnownGoodSnapshot.getFile());
+			this.lastKnownGood = this.lastKnownGoodStore.load();
+			if (null != this.lastKnownGood) {
+				// Start with the last applied properties, the sources are loaded once the context is up
+				final Map<String, String> properties = this.lastKnownGood.getProperties();
+				log.info("Starting with {} last known good properties, reconciling with property sources in the background", properties.size());
+				props.putAll(properties);
+				this.reconcilePending = true;
+				return;
+			}
+		}
+		this.precompiled = readPrecompiledSnapshot();
+		applySources(readSources(null));
+
+		// Merge in reverse precedence order so higher precedence sources win
+		for (final Map<String, String> snapshot : Lists.reverse(precedenceOrder())) {
+			props.putAll(snapshot);
+		}
+	}
+
+	/**
+	 * @return the properties set on the configurer, later sets overriding earlier ones as when merged by Spring
+	 */
+	private Map<String, String> mergeLocalProperties() {
+		if (null == this.localProperties) {
+			return Collections.emptyMap();
+		}
+		final Properties merged = new Properties();
+		for (final Properties properties : this.localProperties) {
+			CollectionUtils.mergePropertiesIntoMap(properties, merged);
+		}
+		final Map<String, String> snapshot = Maps.newHashMap();
+		for (final String property : merged.stringPropertyNames()) {
+			snapshot.put(property, merged.getProperty(property));
+		}
+		return Collections.unmodifiableMap(snapshot);
+	}
+
+	/**
+	 * Loads every location and discovered resource. A location which cannot be loaded but is held by the given last known good sources keeps the keys
+	 * held and is recorded as held.
+	 */
+	private Sources readSources(final PropertySnapshotFile lastKnownGoodSources) throws IOException {
+		final Sources sources = new Sources();
+		for (final Map.Entry<PropertyLayer, Resource[]> layer : this.layerLocations.entrySet()) {
+			final Map<Resource, Map<String, String>> snapshots = Maps.newLinkedHashMap();
+			for (final Resource location : layer.getValue()) {
+				try {
+					snapshots.put(location, loadSnapshot(location, sources.checksums));
+				}
+				catch (final IOException e) {
+					final Map<String, String> held = null == lastKnownGoodSources ? null : lastKnownGoodSources.getSource(PropertySnapshotFile
+						.uriOf(location));
+					if (null != held) {
+						log.warn("Could not load properties from {}, keeping its last known good properties: {}", location, e.getMessage());
+						snapshots.put(location, held);
+						sources.held.add(location);
+						continue;
+					}
+					if (!this.ignoreResourceNotFound) {
+						throw e;
+					}
+					log.warn("Could not load properties from {}: {}", location, e.getMessage());
+				}
+			}
+			sources.layerSnapshots.put(layer.getKey(), snapshots);
+		}
+		if (null != this.resourceDiscoverer) {
+			for (final Resource resource : this.resourceDiscoverer.discover()) {
+				try {
+					sources.discoveredSnapshots.put(resource, loadSnapshot(resource, sources.checksums));
+				}
+				catch (final IOException e) {
+					// Removed or unreadable since discovered, a later discovery run picks it up again once readable
+					log.warn("Could not load discovered properties from {}: {}", resource, e.getMessage());
+					this.resourceDiscoverer.forget(resource);
+				}
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * Replaces the last loaded keys of every resource.
+	 */
+	private void applySources(final Sources sources) {
+		this.layerSnapshots.clear();
+		this.layerSnapshots.putAll(sources.layerSnapshots);
+		this.discoveredSnapshots.clear();
+		this.discoveredSnapshots.putAll(sources.discoveredSnapshots);
+		this.loadedChecksums.clear();
+		this.loadedChecksums.putAll(sources.checksums);
+		this.heldLocations.clear();
+		this.heldLocations.addAll(sources.held);
 	}
 
+	@Override
+	protected Properties mergeProperties() throws IOException {
+		final Properties merged = super.mergeProperties();
+		// Local properties are merged in after loadProperties, only now is the complete set known
+		final PropertySnapshot compiled = null == this.precompiled ? null : this.precompiled.toSnapshot(merged, this.propertyResolver,
+				this.compactStorage);
+		this.propertySnapshot = null != compiled ? compiled : PropertySnapshot.of(merged, this.propertyResolver, this.compactStorage);
+		if (null != this.precompiledSnapshot && !this.reconcilePending
+				&& (null == compiled || this.precompiledOutdated || !sameSources(this.precompiled.getSourceUris()))) {
+			compileSnapshotLater();
+		}
+		this.precompiled = null;
+		if (this.reconcilePending) {
+			this.reconcilePending = false;
+			synchronized (this) {
+				this.reconciling = true;
+			}
+			startReconciling();
+		} else {
+			storeLastKnownGood();
+		}
+		return merged;
+	}
+
+	private void startReconciling() {
+		final Thread reconciler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				reconcile();
+			}
+		}, "properties-reconciler");
+		reconciler.setDaemon(true);
+		reconciler.start();
+	}
+
+	/**
+	 * Loads the property sources after starting with the last known good properties, applying every difference as a regular change. The last known good
+	 * properties stay live if the sources cannot be loaded. Sources are read without holding the lock, slow sources do not block runtime changes.
+	 * <p>
+	 * A location which cannot be loaded keeps the keys it had in the last known good snapshot and is held until it is reloaded, e.g. once it appears.
+	 * The stored snapshot is not replaced while any location is held, so a restart meanwhile still has the keys of every location.
+	 * </p>
+	 * <p>
+	 * Watching started meanwhile only registers its watches once reconciled, any change made to a resource since it was read is then picked up by
+	 * comparing against the checksum of the content read.
+	 * </p>
+	 * <p>
+	 * Reconciles once per start with last known good properties, a further call waits for the first to complete.
+	 * </p>
+	 */
+	void reconcile() {
+		synchronized (this.reconcileLock) {
+			if (null == this.lastKnownGood) {
+				return;
+			}
+			Sources sources = null;
+			try {
+				sources = readSources(this.lastKnownGood);
+			} catch (IOException e) {
+				log.error("Unable to load property sources, keeping last known good properties", e);
+			}
+			synchronized (this) {
+				if (null != sources) {
+					reconcile(sources);
+				} else {
+					this.heldLocations.addAll(Arrays.asList(allLocations()));
+				}
+				this.lastKnownGood = null;
+				this.reconciling = false;
+				if (this.watchPending) {
+					this.watchPending = false;
+					scheduleWatching();
+				}
+			}
+		}
+	}
+
+	private void reconcile(final Sources sources) {
+		final Map<PropertyLayer, Map<Resource, Map<String, String>>> layersBefore = Maps.newEnumMap(this.layerSnapshots);
+		final Map<Resource, Map<String, String>> discoveredBefore = Maps.newLinkedHashMap(this.discoveredSnapshots);
+		final Map<Resource, Long> checksumsBefore = Maps.newHashMap(this.loadedChecksums);
+		try {
+			applySources(sources);
+			final Set<String> properties = Sets.newHashSet(this.propertySnapshot.getProperties()
+				.keySet());
+			for (final Map<String, String> snapshot : precedenceOrder()) {
+				properties.addAll(snapshot.keySet());
+			}
+			applyChanges(properties, false);
+			log.info("Reconciled last known good properties with property sources, now at generation {}", this.propertySnapshot.getGeneration());
+		} catch (CircularPropertyReferenceException e) {
+			applySources(new Sources(layersBefore, discoveredBefore, checksumsBefore));
+			this.heldLocations.addAll(Arrays.asList(allLocations()));
+			log.error("Rejected property sources, keeping last known good properties", e);
+		}
+	}
+
+	@Override
+	public void setLocation(final Resource location) {
+		setLocations(new Resource[] { location });
+	}
+
+	/**
+	 * @param locations the environment specific {@link PropertyLayer#ENVIRONMENT} locations
+	 */
 	@Override
 	public void setLocations(final Resource[] locations) {
 		super.setLocations(locations);
-		this.locations = locations;
+		this.layerLocations.put(PropertyLayer.ENVIRONMENT, locations);
+	}
+
+	/**
+	 * @param defaultLocations the {@link PropertyLayer#DEFAULTS} locations, overridden by every other layer
+	 */
+	public void setDefaultLocations(final Resource[] defaultLocations) {
+		this.layerLocations.put(PropertyLayer.DEFAULTS, defaultLocations);
+	}
+
+	/**
+	 * @param hostOverrideLocations the {@link PropertyLayer#HOST_OVERRIDES} locations, only overridden at runtime
+	 */
+	public void setHostOverrideLocations(final Resource[] hostOverrideLocations) {
+		this.layerLocations.put(PropertyLayer.HOST_OVERRIDES, hostOverrideLocations);
 	}
 
 	@Override
-	public void onResourceChanged(final Resource resource) {
-		try {
-			final Properties reloadedProperties = PropertiesLoaderUtils.loadProperties(resource);
-			for (final String property : this.properties.stringPropertyNames()) {
+	public void setFileEncoding(final String encoding) {
+		super.setFileEncoding(encoding);
+		this.fileEncoding = encoding;
+	}
+
+	@Override
+	public void setIgnoreResourceNotFound(final boolean ignoreResourceNotFound) {
+		super.setIgnoreResourceNotFound(ignoreResourceNotFound);
+		this.ignoreResourceNotFound = ignoreResourceNotFound;
+	}
 
-				final String oldValue = this.properties.getProperty(property);
-				final String newValue = reloadedProperties.getProperty(property);
+	@Override
+	public void setPropertiesPersister(final PropertiesPersister propertiesPersister) {
+		super.setPropertiesPersister(propertiesPersister);
+		this.propertiesPersister = null != propertiesPersister ? propertiesPersister : new DefaultPropertiesPersister();
+	}
+
+	@Override
+	public void onResourceChanged(final Resource resource) {
+		reload(resource);
+	}
 
-				if (propertyExistsAndNotNull(property, newValue) && propertyChange(oldValue, newValue)) {
+	/**
+	 * Reloads the given resource, only applying the keys added, removed or modified since it was last loaded. A runtime override is dropped in favour of
+	 * the reloaded value only if the reload added or modified its key and no resource of higher precedence defines it, other overrides stay until set
+	 * again. A reload introducing a reference cycle is rejected, the resource's previous keys stay live.
+	 * <p>
+	 * A configured location which could not be loaded before, e.g. missing with <code>ignoreResourceNotFound</code> set, is loaded against no previous
+	 * keys and takes its declared place in its layer.
+	 * </p>
+	 */
+	@Override
+	public synchronized boolean reload(final Resource resource) {
+		final PropertyLayer layer = layerLocating(resource);
+		final Map<Resource, Map<String, String>> snapshots = null == layer ? this.discoveredSnapshots : layerSnapshotsOf(layer);
+		final Map<String, String> loaded = snapshots.get(resource);
+		if (null == loaded && null == layer) {
+			log.warn("Ignoring change of resource {} which is no longer watched", resource);
+			return true;
+		}
+		final Map<String, String> previous = null == loaded ? Collections.<String, String> emptyMap() : loaded;
+		final Map<String, String> droppedOverrides = Maps.newHashMap();
+		final Long previousChecksum = this.loadedChecksums.get(resource);
+		final boolean held = this.heldLocations.contains(resource);
+		try {
+			final Map<String, String> current = loadSnapshot(resource, this.loadedChecksums);
+			if (null == loaded) {
+				putInDeclarationOrder(layer, resource, current);
+			} else {
+				snapshots.put(resource, current);
+			}
+			this.heldLocations.remove(resource);
 
-                    // Process the property
-                    processProperty(oldValue, newValue, property);
+			final MapDifference<String, String> difference = Maps.difference(previous, current);
+			final Set<String> changedProperties = Sets.newHashSet();
+			changedProperties.addAll(difference.entriesOnlyOnLeft().keySet());
+			changedProperties.addAll(difference.entriesOnlyOnRight().keySet());
+			changedProperties.addAll(difference.entriesDiffering().keySet());
+			final List<Map<String, String>> precedenceOrder = precedenceOrder();
+			for (final String property : changedProperties) {
+				if (this.runtimeOverrides.containsKey(property) && current.containsKey(property)
+						&& current == highestPrecedenceSnapshotDefining(property, precedenceOrder)) {
+					droppedOverrides.put(property, this.runtimeOverrides.remove(property));
 				}
 			}
+			applyChanges(changedProperties, false);
+			return true;
 		}
 		catch (final IOException e) {
 			log.error("Failed to reload properties file once change", e);
 		}
+		catch (final CircularPropertyReferenceException e) {
+			if (null == loaded) {
+				snapshots.remove(resource);
+			} else {
+				snapshots.put(resource, loaded);
+			}
+			if (null == previousChecksum) {
+				this.loadedChecksums.remove(resource);
+			} else {
+				this.loadedChecksums.put(resource, previousChecksum);
+			}
+			if (held) {
+				this.heldLocations.add(resource);
+			}
+			this.runtimeOverrides.putAll(droppedOverrides);
+			log.error("Rejected reload of properties file {}", resource, e);
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized void onResourceAdded(final Resource resource) {
+		try {
+			final Map<String, String> snapshot = loadSnapshot(resource);
+			this.discoveredSnapshots.put(resource, snapshot);
+			try {
+				applyChanges(snapshot.keySet(), false);
+			}
+			catch (final CircularPropertyReferenceException e) {
+				this.discoveredSnapshots.remove(resource);
+				log.error("Rejected discovered properties file {}", resource, e);
+				return;
+			}
+			watch(resource);
+		}
+		catch (final IOException e) {
+			log.error("Failed to load discovered properties file {}", resource, e);
+		}
+	}
+
+	@Override
+	public synchronized void onResourceRemoved(final Resource resource) {
+		this.pollingScheduler.unregister(resource);
+		final Map<String, String> snapshot = this.discoveredSnapshots.remove(resource);
+		if (null != snapshot) {
+			applyChanges(snapshot.keySet(), false);
+		}
 	}
 
     @Override
-    public void setProperty(String property, String newValue) {
+    public synchronized void setProperty(String property, String newValue) {
 
         if(propertyExistsAndNotNull(property, newValue)) {
 
-            final String oldValue = this.properties.getProperty(property);
-            if (propertyChange(oldValue, newValue)) {
-
-                // Process the property
-                processProperty(oldValue, newValue, property);
+            // Process the property
+            final String previousOverride = this.runtimeOverrides.put(property, newValue);
+            try {
+                applyChanges(Collections.singleton(property), false);
+            } catch (CircularPropertyReferenceException e) {
+                restoreOverride(property, previousOverride);
+                throw e;
             }
         } else {
             log.warn("Failed setting property. Property {} not found.", property);
@@ -103,17 +519,93 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
         }
     }
 
+    /**
+     * Sets all given properties as a single change, validated by every registered {@link PropertyChangeValidator} before it is published. A
+     * {@link PropertiesModifiedEvent} holding every modification is posted first, followed by a {@link PropertyModifiedEvent} per modification of the
+     * same generation for listeners of single properties.
+     *
+     * @throws RuntimeException thrown by a validator rejecting the change, no property is then changed
+     */
+    @Override
+    public synchronized void setProperties(final Map<String, String> newValues) {
+
+        // Validate the whole batch before changing anything
+        for (final Map.Entry<String, String> newValue : newValues.entrySet()) {
+            if (!propertyExistsAndNotNull(newValue.getKey(), newValue.getValue())) {
+                log.warn("Failed setting properties. Property {} not found.", newValue.getKey());
+                throw new PropertyNotFoundException(newValue.getKey());
+            }
+        }
+
+        final Map<String, String> previousOverrides = Maps.newHashMap();
+        for (final String property : newValues.keySet()) {
+            previousOverrides.put(property, this.runtimeOverrides.get(property));
+        }
+        this.runtimeOverrides.putAll(newValues);
+        try {
+            applyChanges(newValues.keySet(), true);
+        } catch (RuntimeException e) {
+            for (final Map.Entry<String, String> previousOverride : previousOverrides.entrySet()) {
+                restoreOverride(previousOverride.getKey(), previousOverride.getValue());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void clearProperty(final String property) {
+        final String previousOverride = this.runtimeOverrides.remove(property);
+        if (null == previousOverride) {
+            return;
+        }
+        try {
+            applyChanges(Collections.singleton(property), false);
+        } catch (CircularPropertyReferenceException e) {
+            restoreOverride(property, previousOverride);
+            throw e;
+        }
+    }
+
     @Override
     public String getProperty(String property) {
 
-        if(this.properties.containsKey(property)) {
-            return this.properties.getProperty(property);
+        final PropertySnapshot snapshot = this.propertySnapshot;
+        if(snapshot.containsProperty(property)) {
+            return snapshot.getProperty(property);
         } else {
             log.warn("Failed getting property. Property {} not found.", property);
             throw new PropertyNotFoundException(property);
         }
     }
 
+    @Override
+    public SortedMap<String, String> getPropertiesWithPrefix(String prefix) {
+        return this.propertySnapshot.getPropertiesWithPrefix(prefix);
+    }
+
+    /**
+     * Subscribes the listener to changes of every property below the given namespace, i.e. named <code>namespace</code> or starting with
+     * <code>namespace.</code>
+     */
+    public synchronized void subscribe(final String namespace, final PropertyNamespaceListener listener) {
+        this.namespaceListeners.put(namespace, listener);
+    }
+
+    public synchronized void unsubscribe(final String namespace, final PropertyNamespaceListener listener) {
+        this.namespaceListeners.remove(namespace, listener);
+    }
+
+    /**
+     * Registers a validator called with every batch of properties set through {@link #setProperties(Map)} before it is published.
+     */
+    public void addChangeValidator(final PropertyChangeValidator validator) {
+        this.changeValidators.add(validator);
+    }
+
+    public void removeChangeValidator(final PropertyChangeValidator validator) {
+        this.changeValidators.remove(validator);
+    }
+
     @Override
     public String getParsedProperty(String property) {
 
@@ -128,13 +620,70 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
     }
 
     @Override
-    protected void finalize() throws Throwable {
-        super.finalize();
+    public int getActivePollingThreadCount() {
+        return null == pollingScheduler ? 0 : pollingScheduler.getThreadCount();
+    }
 
-        // When instance is destroyed un-register the MXBean
-        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
-        final ObjectName objectName = new ObjectName(MXBEAN_NAME);
-        mBeanServer.unregisterMBean(objectName);
+    @Override
+    public long getLastPollingTickDuration() {
+        return null == pollingScheduler ? 0 : pollingScheduler.getLastTickDuration();
+    }
+
+    @Override
+    public long getCoalescedEventCount() {
+        return null == debouncingEventPublisher ? 0 : debouncingEventPublisher.getCoalescedEventCount();
+    }
+
+    @Override
+    public long getSkippedReloadCount() {
+        return null == checksumFilteringEventPublisher ? 0 : checksumFilteringEventPublisher.getSkippedReloadCount();
+    }
+
+    @Override
+    public long getPerformedReloadCount() {
+        return null == checksumFilteringEventPublisher ? 0 : checksumFilteringEventPublisher.getPerformedReloadCount();
+    }
+
+    @Override
+    public long getSavedConversionCount() {
+        return savedConversionCount.get();
+    }
+
+    void recordSavedConversions(final int count) {
+        if (count > 0) {
+            savedConversionCount.addAndGet(count);
+        }
+    }
+
+    @Override
+    public long getLiveBindingCount() {
+        return liveBindingCount.get();
+    }
+
+    void adjustLiveBindingCount(final int delta) {
+        liveBindingCount.addAndGet(delta);
+    }
+
+    @Override
+    public void destroy() {
+        final PropertiesWatcher watcher;
+        synchronized (this) {
+            this.destroyed = true;
+            watcher = this.propertiesWatcher;
+        }
+        if (null != watcher) {
+            watcher.stop();
+        }
+        if (null != this.pollingScheduler) {
+            this.pollingScheduler.shutdown();
+        }
+
+        if (null != this.lastKnownGoodStore) {
+            this.lastKnownGoodStore.close();
+        }
+
+        // When the context is closed un-register the MXBean
+        unregisterMBean();
     }
 
     //**********************************************************
@@ -151,9 +700,166 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
         this.delay = delay;
     }
 
+    public WatchMode getWatchMode() {
+        return watchMode;
+    }
+
+    public void setWatchMode(WatchMode watchMode) {
+        this.watchMode = watchMode;
+    }
+
+    public int getPollingThreadCount() {
+        return pollingThreadCount;
+    }
+
+    public void setPollingThreadCount(int pollingThreadCount) {
+        this.pollingThreadCount = pollingThreadCount;
+    }
+
+    public long getPollingMinDelay() {
+        return pollingMinDelay > 0 ? pollingMinDelay : delay;
+    }
+
+    /**
+     * @param pollingMinDelay delay in ms between polls of a recently changed resource, defaults to <code>delay</code>
+     */
+    public void setPollingMinDelay(long pollingMinDelay) {
+        this.pollingMinDelay = pollingMinDelay;
+    }
+
+    public long getPollingMaxDelay() {
+        return Math.max(getPollingMinDelay(), pollingMaxDelay > 0 ? pollingMaxDelay : delay);
+    }
+
+    /**
+     * @param pollingMaxDelay delay in ms an idle resource backs off to, defaults to <code>delay</code>
+     */
+    public void setPollingMaxDelay(long pollingMaxDelay) {
+        this.pollingMaxDelay = pollingMaxDelay;
+    }
+
+    public Map<String, String> getPollingDelays() {
+        return pollingDelays;
+    }
+
+    /**
+     * @param pollingDelays minimum and optional maximum delay in ms of each polled resource whose URI matches an Ant-style pattern, e.g.
+     *            <code>file:/mnt/nfs/**</code> mapped to <code>5000,300000</code>, the first pattern matching applies. Resources matching none are
+     *            polled between <code>pollingMinDelay</code> and <code>pollingMaxDelay</code>.
+     * @throws IllegalArgumentException if a delay is not a number
+     */
+    public void setPollingDelays(Map<String, String> pollingDelays) {
+        parsePollingDelays(pollingDelays);
+        this.pollingDelays = Maps.newLinkedHashMap(pollingDelays);
+    }
+
+    private static Map<String, long[]> parsePollingDelays(final Map<String, String> pollingDelays) {
+        final Map<String, long[]> parsed = Maps.newLinkedHashMap();
+        for (final Map.Entry<String, String> delays : pollingDelays.entrySet()) {
+            final String[] bounds = StringUtils.commaDelimitedListToStringArray(delays.getValue());
+            final long[] values = new long[bounds.length];
+            for (int i = 0; i < bounds.length; i++) {
+                values[i] = Long.parseLong(bounds[i].trim());
+            }
+            parsed.put(delays.getKey(), values);
+        }
+        return parsed;
+    }
+
+    public long getDebounceQuietPeriod() {
+        return debounceQuietPeriod;
+    }
+
+    /**
+     * @param debounceQuietPeriod time in ms a resource must stay unchanged before it is reloaded, 0 to reload on every change event
+     */
+    public void setDebounceQuietPeriod(long debounceQuietPeriod) {
+        this.debounceQuietPeriod = debounceQuietPeriod;
+    }
+
+    public long getDebounceMaxWait() {
+        return debounceMaxWait;
+    }
+
+    /**
+     * @param debounceMaxWait maximum time in ms a reload is postponed while a resource keeps changing
+     */
+    public void setDebounceMaxWait(long debounceMaxWait) {
+        this.debounceMaxWait = debounceMaxWait;
+    }
+
+    public boolean isCompactStorage() {
+        return compactStorage;
+    }
+
+    /**
+     * @param compactStorage whether to hold live properties in a {@link CompactPropertyMap}, shrinking the footprint of very large
+     *            property sets
+     */
+    public void setCompactStorage(boolean compactStorage) {
+        this.compactStorage = compactStorage;
+    }
+
+    public Resource getLastKnownGoodSnapshot() {
+        return lastKnownGoodSnapshot;
+    }
+
+    /**
+     * @param lastKnownGoodSnapshot local file the last applied properties are stored in, used on startup while the property sources are loaded in the
+     *            background
+     */
+    public void setLastKnownGoodSnapshot(Resource lastKnownGoodSnapshot) {
+        this.lastKnownGoodSnapshot = lastKnownGoodSnapshot;
+    }
+
+    public Resource getPrecompiledSnapshot() {
+        return precompiledSnapshot;
+    }
+
+    /**
+     * @param precompiledSnapshot local file holding the parsed properties of every source and the compiled snapshot built from them, used on a start
+     *            without last known good properties: sources whose checksum is unchanged are not parsed, and if the merged properties are unchanged
+     *            the snapshot is built without sorting or resolving them. The file is rewritten in the background once outdated, see
+     *            {@link PropertySnapshotCompiler} to create it ahead of time.
+     */
+    public void setPrecompiledSnapshot(Resource precompiledSnapshot) {
+        this.precompiledSnapshot = precompiledSnapshot;
+    }
+
+    public String[] getDiscoveryLocations() {
+        return discoveryLocations;
+    }
+
+    /**
+     * @param discoveryLocations wildcard location patterns, re-resolved while watching to pick up added and removed resources
+     */
+    public void setDiscoveryLocations(String[] discoveryLocations) {
+        this.discoveryLocations = discoveryLocations;
+    }
+
+    /**
+     * @return a copy of the current properties, use {@link #getPropertySnapshot()} to read without copying
+     */
     public Properties getProperties() {
-		return this.properties;
-	}
+        final Properties properties = new Properties();
+        properties.putAll(this.propertySnapshot.getProperties());
+        return properties;
+    }
+
+    /**
+     * Deliberately not part of {@link PropertyAccessor}, exposing it as an MXBean attribute would publish every property, secrets included, to each
+     * JMX scraper polling attributes.
+     *
+     * @return the current immutable snapshot of all properties, replaced as a whole on every change
+     */
+    public PropertySnapshot getPropertySnapshot() {
+        return this.propertySnapshot;
+    }
+
+    @Override
+    public long getGeneration() {
+        return this.propertySnapshot.getGeneration();
+    }
 
     //**********************************************************
     //**********************************************************
@@ -161,48 +867,494 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
     //**********************************************************
     //**********************************************************
 
-	public void startWatching() {
+	/**
+	 * Starts watching every location and discovered resource. The watches are registered on the polling scheduler, once any background reconcile has
+	 * completed, setting them up never delays startup.
+	 */
+	public synchronized void startWatching() {
 		if (null == this.eventNotifier) {
 			throw new BeanInitializationException("Event bus not setup, you should not be calling this method...!");
 		}
-		try {
-			// Here we actually create and set a FileWatcher to monitor the given locations
-			Executors.newSingleThreadExecutor().execute(new PropertiesWatcher(this.locations, this, delay));
+		if (null != this.pollingScheduler) {
+			log.warn("Properties file watcher already started");
+			return;
+		}
 
-            // Register this instance as an MBean
-            registerMBean();
+		this.pollingScheduler = new ResourcePollingScheduler(pollingThreadCount, getPollingMinDelay(), getPollingMaxDelay(),
+				parsePollingDelays(pollingDelays));
+		this.eventPublisher = createEventPublisher();
+		if (this.reconciling) {
+			this.watchPending = true;
+		} else {
+			scheduleWatching();
 		}
-		catch (final IOException e) {
-			log.error("Unable to start properties file watcher", e);
+
+		// Register this instance as an MBean
+		registerMBean();
+	}
+
+	private void scheduleWatching() {
+		this.pollingScheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				watchSources();
+			}
+		}, 0);
+	}
+
+	/**
+	 * Registers the watches of every location and discovered resource, then checks each resource against the checksum of the content last read by
+	 * {@link #readSources(PropertySnapshotFile)}, reloading any resource changed before its watch was registered.
+	 */
+	private void watchSources() {
+		final Resource[] locations;
+		final Set<Resource> discovered;
+		final Map<Resource, Long> checksums;
+		synchronized (this) {
+			if (this.destroyed) {
+				return;
+			}
+			locations = allLocations();
+			discovered = ImmutableSet.copyOf(this.discoveredSnapshots.keySet());
+			checksums = Maps.newHashMap(this.loadedChecksums);
+		}
+		this.checksumFilteringEventPublisher.prime(checksums);
+
+		// Here we actually create and set a FileWatcher to monitor the given locations
+		final PropertiesWatcher watcher = new PropertiesWatcher(locations, this.eventPublisher, this.watchMode, this.pollingScheduler);
+		watcher.start();
+		synchronized (this) {
+			if (this.destroyed) {
+				watcher.stop();
+				return;
+			}
+			this.propertiesWatcher = watcher;
+		}
+
+		// Watch discovered resources and keep checking for added or removed ones
+		if (null != this.resourceDiscoverer) {
+			for (final Resource resource : discovered) {
+				watch(resource);
+			}
+			this.pollingScheduler.scheduleWithFixedDelay(this.resourceDiscoverer, this.delay);
+		}
+
+		for (final Resource resource : checksums.keySet()) {
+			this.eventPublisher.onResourceChanged(resource);
 		}
 	}
 
+    private void watch(final Resource resource) {
+        try {
+            this.pollingScheduler.register(resource, this.eventPublisher);
+        } catch (IOException e) {
+            log.warn("Unable to watch resource {}, changes to it will not be reloaded", resource, e);
+        }
+    }
+
+    private EventPublisher createEventPublisher() {
+        // Skip reloads of resources whose content has not changed, retrying failed reloads
+        this.checksumFilteringEventPublisher = new ChecksumFilteringEventPublisher((Reloader) this);
+        if (debounceQuietPeriod <= 0) {
+            return checksumFilteringEventPublisher;
+        }
+
+        // Merge bursts of change events before checking the resource content
+        this.debouncingEventPublisher = new DebouncingEventPublisher(checksumFilteringEventPublisher, pollingScheduler, debounceQuietPeriod,
+                debounceMaxWait);
+        return debouncingEventPublisher;
+    }
+
     private void registerMBean() {
 
         try {
             final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
             final ObjectName objectName = new ObjectName(MXBEAN_NAME);
             mBeanServer.registerMBean(this, objectName);
+            mBeanRegistered = true;
         } catch (JMException e) {
             log.error("MBean registration failed.", e);
         }
     }
 
-    private void processProperty(String oldValue, String newValue, String property) {
+    private void unregisterMBean() {
+
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(MXBEAN_NAME);
+            if (mBeanRegistered) {
+                mBeanServer.unregisterMBean(objectName);
+                mBeanRegistered = false;
+            }
+        } catch (JMException e) {
+            log.error("MBean un-registration failed.", e);
+        }
+    }
+
+    private PropertySnapshotFile readPrecompiledSnapshot() {
+        if (null == this.precompiledSnapshot) {
+            return null;
+        }
+        this.precompiledOutdated = false;
+        try {
+            return PropertySnapshotFile.read(this.precompiledSnapshot.getFile());
+        } catch (FileNotFoundException e) {
+            log.info("Precompiled property snapshot {} not found, it will be created", this.precompiledSnapshot);
+        } catch (IOException e) {
+            log.warn("Unable to read precompiled property snapshot {}, it will be recreated", this.precompiledSnapshot, e);
+        }
+        this.precompiledOutdated = true;
+        return null;
+    }
 
-        // Update locally stored copy of properties
-        this.properties.setProperty(property, newValue);
+    /**
+     * @return whether the given source URIs are those of the sources currently loaded
+     */
+    private boolean sameSources(final List<String> uris) {
+        final Set<String> loaded = Sets.newHashSet();
+        for (final Resource resource : this.loadedChecksums.keySet()) {
+            loaded.add(PropertySnapshotFile.uriOf(resource));
+        }
+        return loaded.equals(Sets.newHashSet(uris));
+    }
 
-        // Post change event to notify any potential listeners
-        this.eventNotifier.post(new PropertyModifiedEvent(property, oldValue, newValue));
+    /**
+     * Writes the snapshot just built and the sources it was built from to the precompiled snapshot file on a background thread.
+     */
+    private void compileSnapshotLater() {
+        final PropertySnapshot snapshot = this.propertySnapshot;
+        final Map<Resource, Map<String, String>> sources = loadedSources();
+        final Map<Resource, Long> checksums = Maps.newHashMap(this.loadedChecksums);
+        final Thread compiler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PropertySnapshotFile.of(snapshot, sources, checksums).write(ReadablePropertySourcesPlaceholderConfigurer.this.precompiledSnapshot.getFile());
+                } catch (IOException e) {
+                    log.warn("Unable to write precompiled property snapshot {}", ReadablePropertySourcesPlaceholderConfigurer.this.precompiledSnapshot, e);
+                }
+            }
+        }, "properties-snapshot-compiler");
+        compiler.setDaemon(true);
+        compiler.start();
+    }
+
+    /**
+     * @return the current snapshot together with the parsed properties and checksum of every loaded source
+     */
+    synchronized PropertySnapshotFile compileSnapshot() {
+        return PropertySnapshotFile.of(this.propertySnapshot, loadedSources(), this.loadedChecksums);
+    }
+
+    private Map<Resource, Map<String, String>> loadedSources() {
+        final Map<Resource, Map<String, String>> sources = Maps.newLinkedHashMap();
+        for (final Map<Resource, Map<String, String>> layer : this.layerSnapshots.values()) {
+            sources.putAll(layer);
+        }
+        sources.putAll(this.discoveredSnapshots);
+        return sources;
+    }
+
+    private Map<String, String> loadSnapshot(final Resource resource) throws IOException {
+        final String filename = resource.getFilename();
+        final boolean xml = null != filename && filename.endsWith(XML_FILE_EXTENSION);
+        if (!xml && null == this.fileEncoding && DefaultPropertiesPersister.class == this.propertiesPersister.getClass()) {
+            // Plain ISO-8859-1 properties, stream straight into the snapshot, sharing the parser with a background reconcile
+            synchronized (this.propertiesParser) {
+                return this.propertiesParser.parse(resource);
+            }
+        }
+
+        final Properties props = new Properties();
+        final InputStream inputStream = resource.getInputStream();
+        try {
+            load(props, inputStream, xml);
+        } finally {
+            inputStream.close();
+        }
+        return Maps.fromProperties(props);
+    }
+
+    /**
+     * Loads the given resource as {@link #loadSnapshot(Resource)} does, recording the CRC32 checksum of the content read into the given map, so that
+     * changes are later detected against the content actually loaded rather than against a second read of the resource.
+     */
+    private Map<String, String> loadSnapshot(final Resource resource, final Map<Resource, Long> checksums) throws IOException {
+        if (null != this.precompiled) {
+            final long checksum = ChecksumUtils.crc32(resource);
+            final Map<String, String> compiled = this.precompiled.getSource(PropertySnapshotFile.uriOf(resource), checksum);
+            if (null != compiled) {
+                checksums.put(resource, checksum);
+                return compiled;
+            }
+            log.debug("Precompiled properties of {} missing or outdated, parsing", resource);
+            this.precompiledOutdated = true;
+        }
+        final String filename = resource.getFilename();
+        final boolean xml = null != filename && filename.endsWith(XML_FILE_EXTENSION);
+        final CheckedInputStream inputStream = new CheckedInputStream(resource.getInputStream(), new CRC32());
+        try {
+            final Map<String, String> snapshot;
+            if (!xml && null == this.fileEncoding && DefaultPropertiesPersister.class == this.propertiesPersister.getClass()) {
+                final Map<String, String> parsed = Maps.newHashMap();
+                synchronized (this.propertiesParser) {
+                    this.propertiesParser.parse(Channels.newChannel(inputStream), new PropertyHandler() {
+                        @Override
+                        public void onProperty(final String key, final String value) {
+                            parsed.put(key, value);
+                        }
+                    });
+                }
+                snapshot = Collections.unmodifiableMap(parsed);
+            } else {
+                final Properties props = new Properties();
+                // Loading XML closes the stream, the rest of the content still has to be read into the checksum
+                load(props, new FilterInputStream(inputStream) {
+                    @Override
+                    public void close() {
+                    }
+                }, xml);
+                snapshot = Maps.fromProperties(props);
+            }
+            final byte[] remainder = new byte[4096];
+            while (inputStream.read(remainder) != -1) {
+                // Read to the end, the checksum covers the whole content
+            }
+            checksums.put(resource, inputStream.getChecksum()
+                .getValue());
+            return snapshot;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private void load(final Properties props, final InputStream inputStream, final boolean xml) throws IOException {
+        if (xml) {
+            this.propertiesPersister.loadFromXml(props, inputStream);
+        } else if (null != this.fileEncoding) {
+            this.propertiesPersister.load(props, new InputStreamReader(inputStream, this.fileEncoding));
+        } else {
+            this.propertiesPersister.load(props, inputStream);
+        }
+    }
+
+    /**
+     * @return the snapshot of every resource, highest precedence first: higher layers override lower ones, within a layer later locations override
+     *         earlier ones and discovered resources never override a location or a resource discovered before them. Local properties override every
+     *         resource with <code>localOverride</code> set and are otherwise overridden by every resource, as when merged by Spring.
+     */
+    private List<Map<String, String>> precedenceOrder() {
+        final List<Map<String, String>> snapshots = Lists.newArrayList();
+        if (this.localOverride) {
+            snapshots.add(this.localSnapshot);
+        }
+        for (final Map<Resource, Map<String, String>> layer : Lists.reverse(Lists.newArrayList(this.layerSnapshots.values()))) {
+            snapshots.addAll(Lists.reverse(Lists.newArrayList(layer.values())));
+        }
+        snapshots.addAll(this.discoveredSnapshots.values());
+        if (!this.localOverride) {
+            snapshots.add(this.localSnapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * @return the snapshot of highest precedence defining the given property, runtime overrides aside, or null if none does
+     */
+    private static Map<String, String> highestPrecedenceSnapshotDefining(final String property, final List<Map<String, String>> snapshots) {
+        for (final Map<String, String> snapshot : snapshots) {
+            if (snapshot.containsKey(property)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the layer the given resource is a configured location of, or null if it is not, e.g. a discovered resource
+     */
+    private PropertyLayer layerLocating(final Resource resource) {
+        for (final Map.Entry<PropertyLayer, Resource[]> layer : this.layerLocations.entrySet()) {
+            if (Arrays.asList(layer.getValue())
+                .contains(resource)) {
+                return layer.getKey();
+            }
+        }
+        return null;
+    }
+
+    private Map<Resource, Map<String, String>> layerSnapshotsOf(final PropertyLayer layer) {
+        Map<Resource, Map<String, String>> snapshots = this.layerSnapshots.get(layer);
+        if (null == snapshots) {
+            snapshots = Maps.newLinkedHashMap();
+            this.layerSnapshots.put(layer, snapshots);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Adds the snapshot of a location not loaded before, keeping the snapshots of the layer in the order its locations were declared.
+     */
+    private void putInDeclarationOrder(final PropertyLayer layer, final Resource location, final Map<String, String> snapshot) {
+        final Map<Resource, Map<String, String>> snapshots = layerSnapshotsOf(layer);
+        final Map<Resource, Map<String, String>> ordered = Maps.newLinkedHashMap();
+        for (final Resource declared : this.layerLocations.get(layer)) {
+            final Map<String, String> declaredSnapshot = declared.equals(location) ? snapshot : snapshots.get(declared);
+            if (null != declaredSnapshot) {
+                ordered.put(declared, declaredSnapshot);
+            }
+        }
+        snapshots.clear();
+        snapshots.putAll(ordered);
+    }
+
+    /**
+     * @return the locations of every layer, lowest precedence first
+     */
+    private Resource[] allLocations() {
+        Resource[] locations = new Resource[0];
+        for (final Resource[] layer : this.layerLocations.values()) {
+            locations = ObjectArrays.concat(locations, layer, Resource.class);
+        }
+        return locations;
+    }
+
+    /**
+     * Re-computes the effective value of each of the given properties, publishing a single new snapshot holding all values added, modified or removed
+     * before posting a change event for each of them and for each property whose resolved value changed through a placeholder referring to them. A
+     * batch is validated before it is published and posted as a single event ahead of the events of each property.
+     */
+    private void applyChanges(final Set<String> changedProperties, final boolean batch) {
+        if (changedProperties.isEmpty()) {
+            return;
+        }
+        final PropertySnapshot current = this.propertySnapshot;
+        final long generation = current.getGeneration() + 1;
+        final List<Map<String, String>> snapshots = precedenceOrder();
+        final Map<String, String> modified = Maps.newHashMap();
+        final Set<String> removed = Sets.newHashSet();
+        final List<PropertyModifiedEvent> events = Lists.newArrayList();
+        for (final String property : changedProperties) {
+            final String oldValue = current.getProperty(property);
+            final String newValue = effectiveValue(property, snapshots);
+            if (null == newValue) {
+                if (null != oldValue) {
+                    log.info("Removing property {}", property);
+                    removed.add(property);
+                    events.add(new PropertyModifiedEvent(property, oldValue, null, generation));
+                }
+            } else if (propertyChange(oldValue, newValue)) {
+                modified.put(property, newValue);
+                events.add(new PropertyModifiedEvent(property, oldValue, newValue, generation));
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        final PropertySnapshot next = current.withChanges(modified, removed);
+
+        // Properties referring to a changed property through placeholders change with it, their events carry resolved values
+        for (final String dependent : next.getDependents(Sets.union(modified.keySet(), removed))) {
+            if (modified.containsKey(dependent) || removed.contains(dependent)) {
+                continue;
+            }
+            final String oldValue = current.resolveProperty(dependent);
+            final String newValue = next.resolveProperty(dependent);
+            if (null == newValue ? null != oldValue : propertyChange(oldValue, newValue)) {
+                events.add(new PropertyModifiedEvent(dependent, oldValue, newValue, generation));
+            }
+        }
+        if (batch) {
+            for (final PropertyChangeValidator validator : this.changeValidators) {
+                validator.validate(next, Collections.unmodifiableList(events));
+            }
+        }
+
+        // Publish the complete change first, listeners read the new snapshot
+        this.propertySnapshot = next;
+        storeLastKnownGood();
+        if (batch) {
+            this.eventNotifier.post(new PropertiesModifiedEvent(events, generation));
+        }
+        for (final PropertyModifiedEvent event : events) {
+            this.eventNotifier.post(event);
+        }
+        notifyNamespaceListeners(events, generation);
+    }
+
+    /**
+     * Groups the events by subscribed namespace, looking up each enclosing namespace of a property rather than matching against every subscription.
+     */
+    private void notifyNamespaceListeners(final List<PropertyModifiedEvent> events, final long generation) {
+        if (this.namespaceListeners.isEmpty()) {
+            return;
+        }
+        final ListMultimap<String, PropertyModifiedEvent> byNamespace = LinkedListMultimap.create();
+        for (final PropertyModifiedEvent event : events) {
+            final String property = event.getPropertyName();
+            for (int end = property.indexOf('.'); end >= 0; end = property.indexOf('.', end + 1)) {
+                addIfSubscribed(byNamespace, property.substring(0, end), event);
+            }
+            addIfSubscribed(byNamespace, property, event);
+        }
+        for (final String namespace : byNamespace.keySet()) {
+            final PropertiesModifiedEvent namespaceEvent = new PropertiesModifiedEvent(byNamespace.get(namespace), generation);
+            for (final PropertyNamespaceListener listener : ImmutableSet.copyOf(this.namespaceListeners.get(namespace))) {
+                try {
+                    listener.onNamespaceModified(namespace, namespaceEvent);
+                } catch (RuntimeException e) {
+                    log.error("Namespace listener {} failed handling change of {}", new Object[] { listener, namespace, e });
+                }
+            }
+        }
+    }
+
+    private void addIfSubscribed(final ListMultimap<String, PropertyModifiedEvent> byNamespace, final String namespace,
+            final PropertyModifiedEvent event) {
+        if (this.namespaceListeners.containsKey(namespace)) {
+            byNamespace.put(namespace, event);
+        }
+    }
+
+    private void storeLastKnownGood() {
+        if (null != this.lastKnownGoodStore && this.heldLocations.isEmpty()) {
+            this.lastKnownGoodStore.storeLater(this.propertySnapshot, loadedSources(), Maps.newHashMap(this.loadedChecksums));
+        }
+    }
+
+    private void restoreOverride(final String property, final String previousOverride) {
+        if (null == previousOverride) {
+            this.runtimeOverrides.remove(property);
+        } else {
+            this.runtimeOverrides.put(property, previousOverride);
+        }
+    }
+
+    private String effectiveValue(final String property, final List<Map<String, String>> snapshots) {
+        final String override = this.runtimeOverrides.get(property);
+        if (null != override) {
+            return override;
+        }
+        for (final Map<String, String> snapshot : snapshots) {
+            final String value = snapshot.get(property);
+            if (null != value) {
+                return value;
+            }
+        }
+        return null;
     }
 
 	public Object resolveProperty(final Object property) {
-		final Object resolvedPropertyValue = this.properties.get(this.propertyResolver.resolveProperty(property));
-		if (this.propertyResolver.requiresFurtherResoltuion(resolvedPropertyValue)) {
-			return resolveProperty(resolvedPropertyValue);
-		}
-		return resolvedPropertyValue;
+		return resolveProperty(this.propertySnapshot, property);
+	}
+
+	/**
+	 * @return the resolved value of the given property in the given snapshot, e.g. a candidate not yet published
+	 */
+	Object resolveProperty(final PropertySnapshot snapshot, final Object property) {
+		// Placeholder chains were resolved once when the snapshot was built
+		return snapshot.resolveProperty(this.propertyResolver.resolveProperty(property));
 	}
 
 	private boolean propertyChange(final String oldValue, final String newValue) {
@@ -210,6 +1362,30 @@ public class ReadablePropertySourcesPlaceholderConfigurer extends PropertySource
 	}
 
 	private boolean propertyExistsAndNotNull(final String property, final String newValue) {
-		return this.properties.containsKey(property) && null != newValue;
+		return this.propertySnapshot.containsProperty(property) && null != newValue;
+	}
+
+	/**
+	 * Last loaded keys of every resource, per layer and discovered, with the checksum of the content they were read from.
+	 */
+	private static final class Sources {
+
+		private final Map<PropertyLayer, Map<Resource, Map<String, String>>> layerSnapshots;
+		private final Map<Resource, Map<String, String>> discoveredSnapshots;
+		private final Map<Resource, Long> checksums;
+		// Locations holding last known good keys instead of loaded ones
+		private final Set<Resource> held = Sets.newHashSet();
+
+		private Sources() {
+			this(new EnumMap<PropertyLayer, Map<Resource, Map<String, String>>>(PropertyLayer.class), Maps.<Resource, Map<String, String>> newLinkedHashMap(),
+					Maps.<Resource, Long> newHashMap());
+		}
+
+		private Sources(final Map<PropertyLayer, Map<Resource, Map<String, String>>> layerSnapshots,
+				final Map<Resource, Map<String, String>> discoveredSnapshots, final Map<Resource, Long> checksums) {
+			this.layerSnapshots = layerSnapshots;
+			this.discoveredSnapshots = discoveredSnapshots;
+			this.checksums = checksums;
+		}
 	}
 }
@@ -1,12 +1,23 @@
 package com.morgan.design.properties.internal;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.Subscribe;
 import com.morgan.design.properties.ReloadableProperty;
 import com.morgan.design.properties.bean.BeanPropertyHolder;
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
 import com.morgan.design.properties.bean.PropertyModifiedEvent;
 import com.morgan.design.properties.conversion.PropertyConversionService;
 import com.morgan.design.properties.event.PropertyChangedEventNotifier;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.joda.time.LocalTime;
+import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -17,12 +28,18 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.ReflectionUtils;
 
 import javax.annotation.PostConstruct;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.HashSet;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * <p>
@@ -45,11 +62,38 @@ public class ReloadablePropertyPostProcessor extends InstantiationAwareBeanPostP
 
 	private static final Logger log = LoggerFactory.getLogger(ReloadablePropertyPostProcessor.class);
 
+	// Shared by every class without annotated fields
+	private static final FieldBinding[] NO_BINDINGS = new FieldBinding[0];
+
+	// Immutable types whose converted value can be assigned to several fields, any other type may be mutated by the bean it is assigned to
+	private static final Set<Class<?>> SHAREABLE_TYPES = ImmutableSet.<Class<?>> builder()
+		.add(Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class)
+		.add(String.class, BigInteger.class, BigDecimal.class)
+		.add(LocalDate.class, LocalDateTime.class, LocalTime.class, DateTime.class, Instant.class, Duration.class, Period.class, DateTimeZone.class)
+		.build();
+	// java.time types are matched by package, they are not available on every supported JDK
+	private static final String JAVA_TIME_PACKAGE = "java.time.";
+
 	private final PropertyChangedEventNotifier eventNotifier;
 	private final PropertyConversionService propertyConversionService;
 	private final ReadablePropertySourcesPlaceholderConfigurer placeholderConfigurer;
 
-	private Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions = Maps.newHashMap();
+	// Registered from bean creating threads while reload events iterate it, holder sets iterate weakly consistent without locking
+	private final ConcurrentMap<String, Set<BoundBeanPropertyHolder>> beanPropertySubscriptions = Maps.newConcurrentMap();
+	// Holders of collected beans, to be unsubscribed
+	private final ReferenceQueue<Object> collectedBeans = new ReferenceQueue<Object>();
+	private final ConcurrentMap<Class<?>, FieldBinding[]> fieldBindings = Maps.newConcurrentMap();
+	// Values of the batch last validated, converted against its candidate snapshot and assigned once the batch is posted
+	private final AtomicReference<ConvertedBatch> validatedBatch = new AtomicReference<ConvertedBatch>();
+	// Generation of the batch last applied, the events of its single properties posted after it are already applied
+	private volatile long appliedBatchGeneration = -1;
+	private final PropertyChangeValidator changeValidator = new PropertyChangeValidator() {
+		@Override
+		@SuppressWarnings("synthetic-access")
+		public void validate(final PropertySnapshot candidate, final List<PropertyModifiedEvent> modifications) {
+			ReloadablePropertyPostProcessor.this.validatedBatch.set(convertBatch(candidate, modifications));
+		}
+	};
 
 	@Autowired
 	public ReloadablePropertyPostProcessor(final ReadablePropertySourcesPlaceholderConfigurer placeholderConfigurer,
@@ -71,6 +115,7 @@ public class ReloadablePropertyPostProcessor extends InstantiationAwareBeanPostP
 	public final void unregisterPropertyReloader() {
 		log.info("Unregistering ReloadablePropertyProcessor from property file changes");
 		this.eventNotifier.unregister(this);
+		this.placeholderConfigurer.removeChangeValidator(this.changeValidator);
 	}
 
 	/**
@@ -79,37 +124,96 @@ public class ReloadablePropertyPostProcessor extends InstantiationAwareBeanPostP
 	public final void registerPropertyReloader() {
 		// Setup Guava event bus listener
 		this.eventNotifier.register(this);
+		// Convert the values of a batch before it is published, a value failing conversion rejects the batch
+		this.placeholderConfigurer.addChangeValidator(this.changeValidator);
 		// Trigger resource change listener
 		this.placeholderConfigurer.startWatching();
 	}
 
 	/**
-	 * Method subscribing to the {@link PropertyModifiedEvent} utilising the {@link Subscribe} annotation
+	 * Method subscribing to the {@link PropertyModifiedEvent} utilising the {@link Subscribe} annotation. The configurer also posts an event for every
+	 * property referring to the modified one, and a field whose property is removed is reverted to the value it was declared with.
 	 * 
 	 * @param event the {@link PropertyModifiedEvent} detailing what's changed
 	 */
 	@Subscribe
 	public void handlePropertyChange(final PropertyModifiedEvent event) {
 
-        if(this.beanPropertySubscriptions.containsKey(event.getPropertyName())) {
-            for (final BeanPropertyHolder bean : this.beanPropertySubscriptions.get(event.getPropertyName())) {
-                updateField(bean, event);
-            }
-        } else {
-            log.warn("Property change event not handled. No property mapped with name {}", event.getPropertyName());
-        }
+		if (0 != event.getGeneration() && event.getGeneration() == this.appliedBatchGeneration) {
+			// Applied with the batch it is part of
+			return;
+		}
+		expungeCollectedBeans();
+		final Set<BoundBeanPropertyHolder> subscriptions = this.beanPropertySubscriptions.get(event.getPropertyName());
+		if (null == subscriptions) {
+			log.warn("Property change event not handled. No property mapped with name {}", event.getPropertyName());
+			return;
+		}
+
+		final ConvertedValues convertedValues = new ConvertedValues(event, getPropertySnapshot());
+		for (final BoundBeanPropertyHolder holder : subscriptions) {
+			assignField(holder, event, convertedValues.valueFor(holder.getField(), holder.getDefaultValue()));
+		}
+		this.placeholderConfigurer.recordSavedConversions(convertedValues.getSavedConversions());
+	}
+
+	/**
+	 * Method subscribing to the {@link PropertiesModifiedEvent} utilising the {@link Subscribe} annotation, assigning the values converted when the batch
+	 * was validated, or converting the values of every modified property before any field is updated, so a value failing conversion leaves all fields
+	 * unchanged.
+	 *
+	 * @param event the {@link PropertiesModifiedEvent} detailing what's changed
+	 */
+	@Subscribe
+	public void handlePropertiesChange(final PropertiesModifiedEvent event) {
+
+		expungeCollectedBeans();
+		ConvertedBatch batch = this.validatedBatch.getAndSet(null);
+		if (null == batch || batch.generation != event.getGeneration()) {
+			batch = convertBatch(getPropertySnapshot(), event.getModifications());
+		}
+		this.placeholderConfigurer.recordSavedConversions(batch.savedConversions);
+
+		for (int i = 0; i < batch.holders.size(); i++) {
+			assignField(batch.holders.get(i), batch.events.get(i), batch.values.get(i));
+		}
+		this.appliedBatchGeneration = event.getGeneration();
+	}
+
+	/**
+	 * @return the values of every field bound to any of the given modifications, converted from the values resolved in the given snapshot
+	 * @throws BeanInitializationException if any value cannot be converted for a field bound to it
+	 */
+	private ConvertedBatch convertBatch(final PropertySnapshot snapshot, final List<PropertyModifiedEvent> modifications) {
+		final ConvertedBatch batch = new ConvertedBatch(modifications.isEmpty() ? 0 : modifications.get(0)
+			.getGeneration());
+		for (final PropertyModifiedEvent modification : modifications) {
+			final Set<BoundBeanPropertyHolder> subscriptions = this.beanPropertySubscriptions.get(modification.getPropertyName());
+			if (null == subscriptions) {
+				log.warn("Property change event not handled. No property mapped with name {}", modification.getPropertyName());
+				continue;
+			}
+			final ConvertedValues convertedValues = new ConvertedValues(modification, snapshot);
+			for (final BoundBeanPropertyHolder holder : subscriptions) {
+				batch.holders.add(holder);
+				batch.events.add(modification);
+				batch.values.add(convertedValues.valueFor(holder.getField(), holder.getDefaultValue()));
+			}
+			batch.savedConversions += convertedValues.getSavedConversions();
+		}
+		return batch;
 	}
 
 	public void updateField(final BeanPropertyHolder holder, final PropertyModifiedEvent event) {
+		final Object value = new ConvertedValues(event, getPropertySnapshot()).valueFor(holder.getField(), holder.getDefaultValue());
 		final Object beanToUpdate = holder.getBean();
 		final Field fieldToUpdate = holder.getField();
 		final String canonicalName = beanToUpdate.getClass()
 			.getCanonicalName();
 
-		final Object convertedProperty = convertPropertyForField(fieldToUpdate, event.getPropertyName());
 		try {
-			log.info("Reloading property [{}] on field [{}] for class [{}]", new Object[] { event.getPropertyName(), fieldToUpdate.getName(), canonicalName });
-			fieldToUpdate.set(beanToUpdate, convertedProperty);
+			fieldToUpdate.set(beanToUpdate, value);
+			logAssigned(event, fieldToUpdate, canonicalName);
 		}
 		catch (final IllegalAccessException e) {
 			log.error("Unable to reloading property [{}] on field [{}] for class [{}]\n Exception [{}]",
@@ -117,67 +221,139 @@ public class ReloadablePropertyPostProcessor extends InstantiationAwareBeanPostP
 		}
 	}
 
+	private void assignField(final BoundBeanPropertyHolder holder, final PropertyModifiedEvent event, final Object value) {
+		final Object beanToUpdate = holder.get();
+		if (null == beanToUpdate) {
+			// Collected, unsubscribed once its holder is dequeued
+			return;
+		}
+		final Field fieldToUpdate = holder.getField();
+		final String canonicalName = beanToUpdate.getClass()
+			.getCanonicalName();
+
+		if (holder.assign(value, event.getGeneration())) {
+			logAssigned(event, fieldToUpdate, canonicalName);
+		}
+		else {
+			log.debug("Skipping property [{}] of generation [{}] on field [{}] for class [{}] already holding a later value",
+					new Object[] { event.getPropertyName(), event.getGeneration(), fieldToUpdate.getName(), canonicalName });
+		}
+	}
+
+	private void logAssigned(final PropertyModifiedEvent event, final Field field, final String canonicalName) {
+		if (event.isRemoved()) {
+			log.info("Reverted field [{}] for class [{}] to its default as property [{}] was removed",
+					new Object[] { field.getName(), canonicalName, event.getPropertyName() });
+		} else {
+			log.info("Reloaded property [{}] on field [{}] for class [{}]", new Object[] { event.getPropertyName(), field.getName(), canonicalName });
+		}
+	}
+
+	/**
+	 * May be called on any thread while properties are reloaded, a bean created concurrently is injected from the current snapshot. Beans are
+	 * referenced weakly and their fields unsubscribed once collected.
+	 */
 	@Override
 	public boolean postProcessAfterInstantiation(final Object bean, final String beanName) throws BeansException {
-		if (log.isDebugEnabled()) {
-			log.debug("Setting Reloadable Properties on [{}]", beanName);
+		final FieldBinding[] bindings = fieldBindingsOf(bean.getClass());
+		if (bindings.length > 0) {
+			expungeCollectedBeans();
+			if (log.isDebugEnabled()) {
+				log.debug("Setting Reloadable Properties on [{}]", beanName);
+			}
+			setPropertiesOnBean(bean, bindings);
 		}
-		setPropertiesOnBean(bean);
 		return true;
 	}
 
-	private void setPropertiesOnBean(final Object bean) {
-		ReflectionUtils.doWithFields(bean.getClass(), new ReflectionUtils.FieldCallback() {
+	/**
+	 * @return the fields annotated with {@link ReloadableProperty} of the given class and its super classes, looked up once per class
+	 */
+	private FieldBinding[] fieldBindingsOf(final Class<?> beanClass) {
+		final FieldBinding[] cached = this.fieldBindings.get(beanClass);
+		if (null != cached) {
+			return cached;
+		}
+
+		final List<FieldBinding> bindings = Lists.newArrayList();
+		ReflectionUtils.doWithFields(beanClass, new ReflectionUtils.FieldCallback() {
 
 			@Override
-			public void doWith(final Field field) throws IllegalArgumentException, IllegalAccessException {
-
+			public void doWith(final Field field) {
 				final ReloadableProperty annotation = field.getAnnotation(ReloadableProperty.class);
 				if (null != annotation) {
-
+					validateFieldNotFinal(beanClass, field);
 					ReflectionUtils.makeAccessible(field);
-					validateFieldNotFinal(bean, field);
+					bindings.add(new FieldBinding(field, annotation.value()));
+				}
+			}
+		});
+		final FieldBinding[] computed = bindings.isEmpty() ? NO_BINDINGS : bindings.toArray(new FieldBinding[bindings.size()]);
+		final FieldBinding[] raced = this.fieldBindings.putIfAbsent(beanClass, computed);
+		return null != raced ? raced : computed;
+	}
 
-					final String property = (String) getProperties().get(annotation.value());
-					validatePropertyAvailableOrDefaultSet(bean, field, annotation, property);
+	private void setPropertiesOnBean(final Object bean, final FieldBinding[] bindings) {
+		try {
+			for (final FieldBinding binding : bindings) {
+				setPropertyOnBean(bean, binding);
+			}
+		}
+		catch (final IllegalAccessException e) {
+			throw new BeanInitializationException(String.format("Unable to set reloadable properties of class [%s]", bean.getClass()
+				.getCanonicalName()), e);
+		}
+	}
 
-					if (null != property) {
+	private void setPropertyOnBean(final Object bean, final FieldBinding binding) throws IllegalAccessException {
+		final Field field = binding.getField();
+		validatePropertyAvailableOrDefaultSet(bean, field, binding.getProperty(), getPropertySnapshot().getProperty(binding.getProperty()));
+		final BoundBeanPropertyHolder holder = new BoundBeanPropertyHolder(bean, binding, field.get(bean), this.collectedBeans);
 
-						log.info("Attempting to convert and set property [{}] on field [{}] for class [{}] to type [{}]",
-								new Object[] { property, field.getName(), bean.getClass()
-									.getCanonicalName(), field.getType() });
+		// Subscribe fields left at their default too, the property may be added later. Subscribing before reading the property means a reload committed
+		// meanwhile is either read below or updates the field, the holder keeps the later generation.
+		subscribeBeanToPropertyChangedEvent(binding.getProperty(), holder);
+		try {
+			final PropertySnapshot snapshot = getPropertySnapshot();
+			final String property = snapshot.getProperty(binding.getProperty());
+			if (null != property) {
 
-						final Object convertedProperty = convertPropertyForField(field, annotation.value());
+				log.info("Attempting to convert and set property [{}] on field [{}] for class [{}] to type [{}]", new Object[] { property, field.getName(),
+						bean.getClass()
+							.getCanonicalName(), field.getType() });
 
-						log.info("Setting field [{}] of class [{}] with value [{}]", new Object[] { field.getName(), bean.getClass()
-							.getCanonicalName(), convertedProperty });
+				final Object convertedProperty = convertPropertyForField(field, binding.getProperty(), snapshot);
 
-						field.set(bean, convertedProperty);
+				log.info("Setting field [{}] of class [{}] with value [{}]", new Object[] { field.getName(), bean.getClass()
+					.getCanonicalName(), convertedProperty });
 
-						subscribeBeanToPropertyChangedEvent(annotation.value(), new BeanPropertyHolder(bean, field));
-					}
-					else {
-						log.info("Leaving field [{}] of class [{}] with default value", new Object[] { field.getName(), bean.getClass()
-							.getCanonicalName() });
-					}
-				}
+				holder.assign(convertedProperty, snapshot.getGeneration());
 			}
-		});
+			else {
+				log.info("Leaving field [{}] of class [{}] with default value", new Object[] { field.getName(), bean.getClass()
+					.getCanonicalName() });
+			}
+		}
+		catch (final RuntimeException e) {
+			unsubscribe(holder);
+			throw e;
+		}
+		this.placeholderConfigurer.adjustLiveBindingCount(1);
 	}
 
-	private void validatePropertyAvailableOrDefaultSet(final Object bean, final Field field, final ReloadableProperty annotation, final String property)
+	private void validatePropertyAvailableOrDefaultSet(final Object bean, final Field field, final String annotatedProperty, final String property)
 			throws IllegalArgumentException, IllegalAccessException {
 		if (null == property && fieldDoesNotHaveDefault(field, bean)) {
 			throw new BeanInitializationException(String.format("No property found for field annotated with @ReloadableProperty, "
 				+ "and no default specified. Property [%s] of class [%s] requires a property named [%s]", field.getName(), bean.getClass()
-				.getCanonicalName(), annotation.value()));
+				.getCanonicalName(), annotatedProperty));
 		}
 	}
 
-	private void validateFieldNotFinal(final Object bean, final Field field) {
+	private void validateFieldNotFinal(final Class<?> beanClass, final Field field) {
 		if (Modifier.isFinal(field.getModifiers())) {
-			throw new BeanInitializationException(String.format("Unable to set field [%s] of class [%s] as is declared final", field.getName(), bean.getClass()
-				.getCanonicalName()));
+			throw new BeanInitializationException(String.format("Unable to set field [%s] of class [%s] as is declared final", field.getName(),
+					beanClass.getCanonicalName()));
 		}
 	}
 
@@ -190,22 +366,111 @@ public class ReloadablePropertyPostProcessor extends InstantiationAwareBeanPostP
 		}
 	}
 
-	private void subscribeBeanToPropertyChangedEvent(final String property, final BeanPropertyHolder fieldProperty) {
-		if (!this.beanPropertySubscriptions.containsKey(property)) {
-			this.beanPropertySubscriptions.put(property, new HashSet<BeanPropertyHolder>());
+	private void subscribeBeanToPropertyChangedEvent(final String property, final BoundBeanPropertyHolder fieldProperty) {
+		Set<BoundBeanPropertyHolder> subscriptions = this.beanPropertySubscriptions.get(property);
+		if (null == subscriptions) {
+			final Set<BoundBeanPropertyHolder> created = Collections.newSetFromMap(Maps.<BoundBeanPropertyHolder, Boolean> newConcurrentMap());
+			subscriptions = this.beanPropertySubscriptions.putIfAbsent(property, created);
+			if (null == subscriptions) {
+				subscriptions = created;
+			}
+		}
+		subscriptions.add(fieldProperty);
+	}
+
+	private boolean unsubscribe(final BoundBeanPropertyHolder holder) {
+		final Set<BoundBeanPropertyHolder> subscriptions = this.beanPropertySubscriptions.get(holder.getBinding()
+			.getProperty());
+		return null != subscriptions && subscriptions.remove(holder);
+	}
+
+	/**
+	 * Unsubscribes the fields of beans collected since last called, run before every subscription and reload so the registry shrinks with the live beans
+	 * rather than growing with every bean ever created.
+	 */
+	private void expungeCollectedBeans() {
+		int expunged = 0;
+		for (Reference<?> collected = this.collectedBeans.poll(); null != collected; collected = this.collectedBeans.poll()) {
+			if (unsubscribe((BoundBeanPropertyHolder) collected)) {
+				expunged++;
+			}
+		}
+		if (expunged > 0) {
+			log.debug("Unsubscribed {} fields of collected beans", expunged);
+			this.placeholderConfigurer.adjustLiveBindingCount(-expunged);
+		}
+	}
+
+	/**
+	 * Values of one modified property converted per field type, every field of a type shares the value converted for the first. Only primitives,
+	 * their wrappers, strings, enums and known immutable number and date types are shared, values of any other type are converted per field so
+	 * beans never share a mutable instance. Conversions saved are exposed by {@link PropertyAccessorMXBean#getSavedConversionCount()}.
+	 */
+	private final class ConvertedValues {
+
+		private final PropertyModifiedEvent event;
+		private final PropertySnapshot snapshot;
+		private final Map<Class<?>, Object> valuesByType = Maps.newHashMap();
+		private int savedConversions;
+
+		ConvertedValues(final PropertyModifiedEvent event, final PropertySnapshot snapshot) {
+			this.event = event;
+			this.snapshot = snapshot;
+		}
+
+		Object valueFor(final Field field, final Object defaultValue) {
+			if (this.event.isRemoved()) {
+				return defaultValue;
+			}
+			final Class<?> type = field.getType();
+			if (!isShareable(type)) {
+				return convertPropertyForField(field, this.event.getPropertyName(), this.snapshot);
+			}
+			// Converted values may be null
+			if (this.valuesByType.containsKey(type)) {
+				this.savedConversions++;
+				return this.valuesByType.get(type);
+			}
+			final Object value = convertPropertyForField(field, this.event.getPropertyName(), this.snapshot);
+			this.valuesByType.put(type, value);
+			return value;
+		}
+
+		int getSavedConversions() {
+			return this.savedConversions;
+		}
+
+		private boolean isShareable(final Class<?> type) {
+			return type.isPrimitive() || type.isEnum() || SHAREABLE_TYPES.contains(type) || type.getName()
+				.startsWith(JAVA_TIME_PACKAGE);
+		}
+	}
+
+	/**
+	 * Converted values of every field bound to the modifications of a batch, with the modification each is assigned for.
+	 */
+	private static final class ConvertedBatch {
+
+		private final long generation;
+		private final List<BoundBeanPropertyHolder> holders = Lists.newArrayList();
+		private final List<PropertyModifiedEvent> events = Lists.newArrayList();
+		private final List<Object> values = Lists.newArrayList();
+		private int savedConversions;
+
+		ConvertedBatch(final long generation) {
+			this.generation = generation;
 		}
-		this.beanPropertySubscriptions.get(property)
-			.add(fieldProperty);
 	}
 
 	// ///////////////////////////////////
 	// Utility methods for class access //
 	// ///////////////////////////////////
 
-	private Object convertPropertyForField(final Field field, final String property) {
+	private Object convertPropertyForField(final Field field, final String property, final PropertySnapshot snapshot) {
 
         try {
-		    return this.propertyConversionService.convertPropertyForField(field.getType(), resolverProperty(property));
+		    return this.propertyConversionService.convertPropertyForField(field.getType(),
+		            (String) this.placeholderConfigurer.resolveProperty(snapshot, property));
         } catch (final Throwable e) {
             throw new BeanInitializationException(String.format("Unable to convert property for field [%s].  Value [%s] cannot be converted to [%s]",
                     field.getName(), property, field.getType()), e);
@@ -213,11 +478,7 @@ public class ReloadablePropertyPostProcessor extends InstantiationAwareBeanPostP
 
 	}
 
-	private String resolverProperty(final String property) {
-		return (String) this.placeholderConfigurer.resolveProperty(property);
-	}
-
-	private Properties getProperties() {
-		return this.placeholderConfigurer.getProperties();
+	private PropertySnapshot getPropertySnapshot() {
+		return this.placeholderConfigurer.getPropertySnapshot();
 	}
 }
@@ -0,0 +1,253 @@
+package com.morgan.design.properties.internal;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared scheduler polling every registered resource for changes. Instead of a thread per resource a small, fixed pool of named daemon threads is used, each
+ * thread checking its share of the registered resources once per tick.
+ * <p>
+ * Each resource is polled adaptively between a minimum and maximum delay: right after a change it is polled every minimum delay as follow-up edits are
+ * likely, while idle the delay doubles on each unchanged poll up to the maximum. Ticks run every minimum delay, only checking resources which are due.
+ * Resources whose URI matches a configured pattern, e.g. on a slow network mount, are polled between the delays given for that pattern instead.
+ * </p>
+ * <p>
+ * The scheduler is also available to other watcher components needing to run delayed tasks, see {@link #schedule(Runnable, long)}.
+ * </p>
+ */
+public class ResourcePollingScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourcePollingScheduler.class);
+
+    private final ScheduledExecutorService executor;
+    private final List<ScheduledPoll> polledResources = new CopyOnWriteArrayList<ScheduledPoll>();
+    private final List<ScheduledFuture<?>> ticks = new CopyOnWriteArrayList<ScheduledFuture<?>>();
+    private final int threadCount;
+    private final long minDelay;
+    private final long maxDelay;
+    private final long tickDelay;
+    // Minimum and maximum delay per Ant-style pattern of resource URIs, the first pattern matching applies
+    private final Map<String, long[]> resourceDelays;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    private volatile long lastTickDuration;
+
+    /**
+     * @param threadCount the number of polling threads, resources are partitioned between them
+     * @param delay the fixed delay in ms between polls of each resource
+     */
+    public ResourcePollingScheduler(final int threadCount, final long delay) {
+        this(threadCount, delay, delay);
+    }
+
+    /**
+     * @param threadCount the number of polling threads, resources are partitioned between them
+     * @param minDelay the delay in ms between polls of a recently changed resource, also the delay between each polling tick
+     * @param maxDelay the delay in ms an idle resource backs off to
+     */
+    public ResourcePollingScheduler(final int threadCount, final long minDelay, final long maxDelay) {
+        this(threadCount, minDelay, maxDelay, Collections.<String, long[]> emptyMap());
+    }
+
+    /**
+     * @param threadCount the number of polling threads, resources are partitioned between them
+     * @param minDelay the delay in ms between polls of a recently changed resource not matching any pattern
+     * @param maxDelay the delay in ms such an idle resource backs off to
+     * @param resourceDelays the minimum and optional maximum delay in ms of the resources whose URI matches each Ant-style pattern, e.g.
+     *            <code>file:/mnt/nfs/**</code>, in the order matched. Ticks run every smallest minimum delay.
+     * @throws IllegalArgumentException if a pattern is given no delay, more than two or one which is not positive
+     */
+    public ResourcePollingScheduler(final int threadCount, final long minDelay, final long maxDelay, final Map<String, long[]> resourceDelays) {
+        this.threadCount = Math.max(1, threadCount);
+        this.minDelay = minDelay;
+        this.maxDelay = Math.max(minDelay, maxDelay);
+        long tick = minDelay;
+        for (final Map.Entry<String, long[]> delays : resourceDelays.entrySet()) {
+            final long[] bounds = delays.getValue();
+            if (bounds.length < 1 || bounds.length > 2 || bounds[0] <= 0 || bounds[bounds.length - 1] <= 0) {
+                throw new IllegalArgumentException("Expected a positive minimum and optional maximum delay for " + delays.getKey());
+            }
+            tick = Math.min(tick, bounds[0]);
+        }
+        this.tickDelay = tick;
+        this.resourceDelays = resourceDelays;
+        this.executor = Executors.newScheduledThreadPool(this.threadCount, new ThreadFactoryBuilder().setNameFormat("PropertiesPoller-%d")
+            .setDaemon(true)
+            .build());
+    }
+
+    /**
+     * Registers the given resource, publishing to the given {@link EventPublisher} when it changes. For files this is a change of size, modification time
+     * or, when replaced through a symlink swap, real path; see {@link PolledResource#forResource(Resource, EventPublisher)} for other resource types. The
+     * resource is polled between the delays of the first pattern its URI matches, or the scheduler's if none.
+     *
+     * @throws IOException if the resource type cannot be polled
+     */
+    public void register(final Resource resource, final EventPublisher eventPublisher) throws IOException {
+        final String uri = uriOf(resource);
+        for (final Map.Entry<String, long[]> delays : resourceDelays.entrySet()) {
+            if (pathMatcher.match(delays.getKey(), uri)) {
+                final long[] bounds = delays.getValue();
+                register(resource, eventPublisher, bounds[0], bounds[bounds.length - 1]);
+                return;
+            }
+        }
+        register(resource, eventPublisher, minDelay, maxDelay);
+    }
+
+    /**
+     * Registers the given resource using its own minimum and maximum delay, a minimum delay below the smallest one configured
+     * is effectively rounded up to one tick.
+     *
+     * @throws IOException if the resource type cannot be polled
+     */
+    public void register(final Resource resource, final EventPublisher eventPublisher, final long resourceMinDelay, final long resourceMaxDelay)
+            throws IOException {
+        log.info("Polling resource {} every {} to {} ms", new Object[] { resource, resourceMinDelay, Math.max(resourceMinDelay, resourceMaxDelay) });
+        polledResources.add(new ScheduledPoll(PolledResource.forResource(resource, eventPublisher), resourceMinDelay, resourceMaxDelay));
+        start();
+    }
+
+    public void unregister(final Resource resource) {
+        for (final ScheduledPoll scheduledPoll : polledResources) {
+            if (scheduledPoll.polledResource.getResource().equals(resource)) {
+                polledResources.remove(scheduledPoll);
+            }
+        }
+    }
+
+    /**
+     * Runs the given task once after the given delay in ms on one of the polling threads.
+     */
+    public ScheduledFuture<?> schedule(final Runnable task, final long delay) {
+        return executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the given task repeatedly with the given delay in ms between runs on one of the polling threads.
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable task, final long delay) {
+        return executor.scheduleWithFixedDelay(task, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        log.info("Shutting down resource polling scheduler");
+        executor.shutdownNow();
+        polledResources.clear();
+        ticks.clear();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getResourceCount() {
+        return polledResources.size();
+    }
+
+    /**
+     * @return the current delay in ms between polls of the given resource, or -1 if it is not registered
+     */
+    long getCurrentDelay(final Resource resource) {
+        for (final ScheduledPoll scheduledPoll : polledResources) {
+            if (scheduledPoll.polledResource.getResource().equals(resource)) {
+                return scheduledPoll.currentDelay;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the time in ms taken by the most recently completed polling tick
+     */
+    public long getLastTickDuration() {
+        return TimeUnit.NANOSECONDS.toMillis(lastTickDuration);
+    }
+
+    private synchronized void start() {
+        if (!ticks.isEmpty() || executor.isShutdown()) {
+            return;
+        }
+        for (int partition = 0; partition < threadCount; partition++) {
+            final int threadPartition = partition;
+            ticks.add(executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    tick(threadPartition);
+                }
+            }, tickDelay, tickDelay, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static String uriOf(final Resource resource) {
+        try {
+            return resource.getURI().toString();
+        } catch (IOException e) {
+            return resource.getDescription();
+        }
+    }
+
+    private void tick(final int partition) {
+        final long start = System.nanoTime();
+        int index = 0;
+        for (final ScheduledPoll scheduledPoll : polledResources) {
+            if (index++ % threadCount == partition) {
+                scheduledPoll.pollIfDue(start);
+            }
+        }
+        lastTickDuration = System.nanoTime() - start;
+    }
+
+    /**
+     * A registered resource together with its adaptive polling delay.
+     */
+    private static class ScheduledPoll {
+
+        private final PolledResource polledResource;
+        private final long minDelay;
+        private final long maxDelay;
+
+        private volatile long currentDelay;
+        private long nextPoll;
+
+        public ScheduledPoll(final PolledResource polledResource, final long minDelay, final long maxDelay) {
+            this.polledResource = polledResource;
+            this.minDelay = minDelay;
+            this.maxDelay = Math.max(minDelay, maxDelay);
+            this.currentDelay = minDelay;
+            this.nextPoll = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(minDelay);
+        }
+
+        public synchronized void pollIfDue(final long now) {
+            if (now - nextPoll < 0) {
+                return;
+            }
+            if (polledResource.poll()) {
+                // Follow-up edits are likely shortly after a change
+                currentDelay = minDelay;
+            } else {
+                currentDelay = Math.min(currentDelay * 2, maxDelay);
+            }
+            nextPoll = now + TimeUnit.MILLISECONDS.toNanos(currentDelay);
+        }
+    }
+}
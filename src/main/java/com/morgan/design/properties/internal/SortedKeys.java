@@ -0,0 +1,144 @@
+package com.morgan.design.properties.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+
+/**
+ * Immutable sorted set of property keys held in sorted chunks of a few hundred keys. Keys with a common prefix are found by binary search, and adding or
+ * removing keys copies only the chunks holding them and the array of chunk references.
+ */
+final class SortedKeys {
+
+    private static final int CHUNK_SIZE = 512;
+
+    private static final SortedKeys EMPTY = new SortedKeys(new String[0][], new String[0]);
+
+    // Chunks are sorted, non empty and ordered, firstKeys holds the first key of each chunk
+    private final String[][] chunks;
+    private final String[] firstKeys;
+
+    private SortedKeys(final String[][] chunks, final String[] firstKeys) {
+        this.chunks = chunks;
+        this.firstKeys = firstKeys;
+    }
+
+    static SortedKeys of(final Collection<String> keys) {
+        final String[] sorted = keys.toArray(new String[keys.size()]);
+        Arrays.sort(sorted);
+        return ofSorted(Arrays.asList(sorted));
+    }
+
+    /**
+     * @param sorted distinct keys already in natural order, e.g. read back in the order {@link #withPrefix(String)} returned them
+     */
+    static SortedKeys ofSorted(final List<String> sorted) {
+        final List<String[]> chunks = Lists.newArrayList();
+        split(sorted, chunks);
+        return of(chunks);
+    }
+
+    /**
+     * @param added keys not yet held
+     * @param removed keys held
+     * @return the keys of this set with the given keys added and removed, sharing every chunk holding none of them with this set
+     */
+    SortedKeys withChanges(final Collection<String> added, final Set<String> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return this;
+        }
+        if (0 == this.chunks.length) {
+            return of(added);
+        }
+
+        final ListMultimap<Integer, String> changes = ArrayListMultimap.create();
+        for (final String key : added) {
+            changes.put(chunkIndexOf(key), key);
+        }
+        for (final String key : removed) {
+            changes.put(chunkIndexOf(key), key);
+        }
+
+        final List<String[]> next = Lists.newArrayListWithCapacity(this.chunks.length + 1);
+        for (int i = 0; i < this.chunks.length; i++) {
+            if (!changes.containsKey(i)) {
+                next.add(this.chunks[i]);
+                continue;
+            }
+            final List<String> merged = Lists.newArrayList(this.chunks[i]);
+            for (final String key : changes.get(i)) {
+                final int index = Collections.binarySearch(merged, key);
+                if (index < 0 && !removed.contains(key)) {
+                    merged.add(-(index + 1), key);
+                } else if (index >= 0 && removed.contains(key)) {
+                    merged.remove(index);
+                }
+            }
+            split(merged, next);
+        }
+        return of(next);
+    }
+
+    /**
+     * @return the keys starting with the given prefix, sorted, in O(log n + k) for k matching keys
+     */
+    List<String> withPrefix(final String prefix) {
+        final List<String> matching = Lists.newArrayList();
+        if (0 == this.chunks.length) {
+            return matching;
+        }
+        int chunk = chunkIndexOf(prefix);
+        final int index = Arrays.binarySearch(this.chunks[chunk], prefix);
+        int position = index >= 0 ? index : -(index + 1);
+        for (; chunk < this.chunks.length; chunk++, position = 0) {
+            for (; position < this.chunks[chunk].length; position++) {
+                if (!this.chunks[chunk][position].startsWith(prefix)) {
+                    return matching;
+                }
+                matching.add(this.chunks[chunk][position]);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * @return the chunk the given key is or would be held in
+     */
+    private int chunkIndexOf(final String key) {
+        final int index = Arrays.binarySearch(this.firstKeys, key);
+        return index >= 0 ? index : Math.max(0, -(index + 1) - 1);
+    }
+
+    /**
+     * Adds the given sorted keys as chunks, a single chunk unless holding more than twice the chunk size.
+     */
+    private static void split(final List<String> sorted, final List<String[]> chunks) {
+        if (sorted.size() <= 2 * CHUNK_SIZE) {
+            if (!sorted.isEmpty()) {
+                chunks.add(sorted.toArray(new String[sorted.size()]));
+            }
+            return;
+        }
+        for (int from = 0; from < sorted.size(); from += CHUNK_SIZE) {
+            final List<String> chunk = sorted.subList(from, Math.min(sorted.size(), from + CHUNK_SIZE));
+            chunks.add(chunk.toArray(new String[chunk.size()]));
+        }
+    }
+
+    private static SortedKeys of(final List<String[]> chunks) {
+        if (chunks.isEmpty()) {
+            return EMPTY;
+        }
+        final String[] firstKeys = new String[chunks.size()];
+        for (int i = 0; i < firstKeys.length; i++) {
+            firstKeys[i] = chunks.get(i)[0];
+        }
+        return new SortedKeys(chunks.toArray(new String[chunks.size()][]), firstKeys);
+    }
+}
@@ -0,0 +1,93 @@
+package com.morgan.design.properties.internal;
+
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Periodically re-resolves a set of wildcard location patterns (e.g. <code>classpath*:META-INF/*.properties</code> or
+ * <code>file:/opt/plugins/*.properties</code>), notifying a {@link DiscoveryListener} of each resource matching or no longer matching the patterns.
+ */
+public class WildcardResourceDiscoverer implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(WildcardResourceDiscoverer.class);
+
+    public interface DiscoveryListener {
+        void onResourceAdded(Resource resource);
+
+        void onResourceRemoved(Resource resource);
+    }
+
+    private final String[] locationPatterns;
+    private final ResourcePatternResolver resourcePatternResolver;
+    private final DiscoveryListener discoveryListener;
+
+    private Set<Resource> discovered = Sets.newLinkedHashSet();
+
+    public WildcardResourceDiscoverer(final String[] locationPatterns, final ResourcePatternResolver resourcePatternResolver,
+                                      final DiscoveryListener discoveryListener) {
+        this.locationPatterns = locationPatterns;
+        this.resourcePatternResolver = resourcePatternResolver;
+        this.discoveryListener = discoveryListener;
+    }
+
+    /**
+     * Resolves the location patterns without notifying the listener, used for the initial load.
+     *
+     * @return the resources currently matching the patterns, in pattern order
+     */
+    public synchronized Resource[] discover() throws IOException {
+        this.discovered = resolve();
+        return discovered.toArray(new Resource[discovered.size()]);
+    }
+
+    /**
+     * Treats the given resource as not discovered, the next run notifies the listener of it again if it still matches.
+     */
+    public synchronized void forget(final Resource resource) {
+        this.discovered.remove(resource);
+    }
+
+    @Override
+    public synchronized void run() {
+        final Set<Resource> current;
+        try {
+            current = resolve();
+        } catch (IOException e) {
+            log.warn("Unable to resolve location patterns {}", Arrays.toString(locationPatterns), e);
+            return;
+        }
+
+        try {
+            for (final Resource removed : Sets.difference(discovered, current)) {
+                log.info("Resource {} no longer matches location patterns", removed);
+                discoveryListener.onResourceRemoved(removed);
+            }
+            for (final Resource added : Sets.difference(current, discovered)) {
+                log.info("Discovered new resource {}", added);
+                discoveryListener.onResourceAdded(added);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed applying discovered resources", e);
+        }
+        this.discovered = current;
+    }
+
+    private Set<Resource> resolve() throws IOException {
+        final Set<Resource> resources = Sets.newLinkedHashSet();
+        for (final String locationPattern : locationPatterns) {
+            for (final Resource resource : resourcePatternResolver.getResources(locationPattern)) {
+                if (resource.exists()) {
+                    resources.add(resource);
+                }
+            }
+        }
+        return resources;
+    }
+}
@@ -0,0 +1,266 @@
+package com.morgan.design.properties.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.core.io.Resource;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Streaming parser of the ISO-8859-1 <code>.properties</code> format, fully compatible with {@link java.util.Properties#load(java.io.InputStream)}
+ * (comments, escapes, line continuations and <code>\\uxxxx</code> unicode escapes).
+ * <p>
+ * Resources are read through a reusable direct {@link ByteBuffer} and each key/value pair is emitted to a {@link PropertyHandler} as soon as it is parsed,
+ * avoiding the synchronized {@link java.util.Properties} table and the intermediate per-line allocation of {@link java.util.Properties#load}. Line and
+ * conversion buffers are reused between lines and between resources, a parser must therefore not be shared between threads.
+ * </p>
+ */
+public class PropertiesParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface PropertyHandler {
+        void onProperty(String key, String value);
+    }
+
+    private final ByteBuffer buffer;
+
+    private ReadableByteChannel channel;
+    private char[] lineBuffer = new char[1024];
+    private char[] convertBuffer = new char[1024];
+
+    public PropertiesParser() {
+        this(BUFFER_SIZE);
+    }
+
+    PropertiesParser(final int bufferSize) {
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * @return the key/values of the given resource, a key defined more than once keeping its last value
+     */
+    public Map<String, String> parse(final Resource resource) throws IOException {
+        final Map<String, String> properties = Maps.newHashMap();
+        parse(resource, new PropertyHandler() {
+            @Override
+            public void onProperty(final String key, final String value) {
+                properties.put(key, value);
+            }
+        });
+        return Collections.unmodifiableMap(properties);
+    }
+
+    public void parse(final Resource resource, final PropertyHandler handler) throws IOException {
+        final ReadableByteChannel resourceChannel = openChannel(resource);
+        try {
+            parse(resourceChannel, handler);
+        } finally {
+            resourceChannel.close();
+        }
+    }
+
+    public void parse(final ReadableByteChannel readableChannel, final PropertyHandler handler) throws IOException {
+        this.channel = readableChannel;
+        this.buffer.clear().flip();
+        try {
+            int limit;
+            while ((limit = readLine()) >= 0) {
+                parseLine(limit, handler);
+            }
+        } finally {
+            this.channel = null;
+        }
+    }
+
+    private static ReadableByteChannel openChannel(final Resource resource) throws IOException {
+        final File file;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            // Not on the file system, e.g. inside a jar
+            return Channels.newChannel(resource.getInputStream());
+        }
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Splits a logical line into key and value the same way {@link java.util.Properties#load} does: the key ends at the first unescaped '=', ':' or
+     * whitespace, optionally followed by whitespace and a single '=' or ':'.
+     */
+    private void parseLine(final int limit, final PropertyHandler handler) {
+        int keyLength = 0;
+        int valueStart = limit;
+        boolean hasSeparator = false;
+        boolean precedingBackslash = false;
+
+        while (keyLength < limit) {
+            final char c = lineBuffer[keyLength];
+            if ((c == '=' || c == ':') && !precedingBackslash) {
+                valueStart = keyLength + 1;
+                hasSeparator = true;
+                break;
+            } else if (isWhitespace(c) && !precedingBackslash) {
+                valueStart = keyLength + 1;
+                break;
+            }
+            precedingBackslash = c == '\\' && !precedingBackslash;
+            keyLength++;
+        }
+        while (valueStart < limit) {
+            final char c = lineBuffer[valueStart];
+            if (!isWhitespace(c)) {
+                if (!hasSeparator && (c == '=' || c == ':')) {
+                    hasSeparator = true;
+                } else {
+                    break;
+                }
+            }
+            valueStart++;
+        }
+
+        final String key = convert(0, keyLength);
+        final String value = convert(valueStart, limit - valueStart);
+        handler.onProperty(key, value);
+    }
+
+    /**
+     * Reads the next logical line into the line buffer, skipping comments, blank lines and leading whitespace and joining continued lines.
+     *
+     * @return the length of the line, or -1 once the end of the input has been reached
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        boolean skipWhitespace = true;
+        boolean isCommentLine = false;
+        boolean isNewLine = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+        boolean skipLineFeed = false;
+
+        while (true) {
+            if (!buffer.hasRemaining() && !fill()) {
+                if (length == 0 || isCommentLine) {
+                    return -1;
+                }
+                return precedingBackslash ? length - 1 : length;
+            }
+            final char c = (char) (buffer.get() & 0xff);
+
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (skipWhitespace) {
+                if (isWhitespace(c) || (!appendedLineBegin && (c == '\r' || c == '\n'))) {
+                    continue;
+                }
+                skipWhitespace = false;
+                appendedLineBegin = false;
+            }
+            if (isNewLine) {
+                isNewLine = false;
+                if (c == '#' || c == '!') {
+                    isCommentLine = true;
+                    continue;
+                }
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (isCommentLine) {
+                    continue;
+                }
+                if (length == lineBuffer.length) {
+                    lineBuffer = grow(lineBuffer, length * 2);
+                }
+                lineBuffer[length++] = c;
+                precedingBackslash = c == '\\' && !precedingBackslash;
+            } else if (isCommentLine || length == 0) {
+                isCommentLine = false;
+                isNewLine = true;
+                skipWhitespace = true;
+                length = 0;
+            } else if (precedingBackslash) {
+                // Continuation, drop the backslash and the leading whitespace of the next line
+                length--;
+                skipWhitespace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                skipLineFeed = c == '\r';
+            } else {
+                return length;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read = 0;
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        return read > 0;
+    }
+
+    /**
+     * Converts escaped characters (<code>\\t</code>, <code>\\n</code>, <code>\\uxxxx</code>, ...) of the given part of the line buffer.
+     */
+    private String convert(int offset, final int length) {
+        if (convertBuffer.length < length) {
+            convertBuffer = new char[Math.max(length, convertBuffer.length * 2)];
+        }
+        final int end = offset + length;
+        int outLength = 0;
+        while (offset < end) {
+            char c = lineBuffer[offset++];
+            if (c == '\\' && offset < end) {
+                c = lineBuffer[offset++];
+                if (c == 'u') {
+                    if (offset + 4 > end) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        final int digit = Character.digit(lineBuffer[offset++], 16);
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        }
+                        value = (value << 4) + digit;
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            convertBuffer[outLength++] = c;
+        }
+        return new String(convertBuffer, 0, outLength);
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    private static char[] grow(final char[] chars, final int length) {
+        final char[] grown = new char[length];
+        System.arraycopy(chars, 0, grown, 0, chars.length);
+        return grown;
+    }
+}
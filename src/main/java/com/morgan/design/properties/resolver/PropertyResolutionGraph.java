@@ -0,0 +1,217 @@
+package com.morgan.design.properties.resolver;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.morgan.design.properties.exception.CircularPropertyReferenceException;
+
+/**
+ * Placeholder references between the properties of one property set, compiled once using a {@link PropertyResolver} so each property resolves in O(1).
+ * <p>
+ * Every property whose value requires further resolution is linked to the property it refers to and its fully resolved value is cached. Cycles are
+ * detected when the graph is built or updated. An update only re-resolves the changed properties and the properties which transitively refer to them.
+ * </p>
+ * <p>
+ * Graphs are immutable, {@link #update(Map, Set)} returns a new graph leaving the original unchanged.
+ * </p>
+ */
+public final class PropertyResolutionGraph {
+
+	private final PropertyResolver propertyResolver;
+	private final Map<String, String> properties;
+
+	// Property to the property its value refers to, and the reverse
+	private final Map<String, String> references;
+	private final SetMultimap<String, String> dependents;
+
+	// Resolved value of each property referring to another, properties resolving to nothing are absent
+	private final Map<String, String> resolvedValues;
+
+	private PropertyResolutionGraph(final PropertyResolver propertyResolver, final Map<String, String> properties, final Map<String, String> references,
+			final SetMultimap<String, String> dependents, final Map<String, String> resolvedValues) {
+		this.propertyResolver = propertyResolver;
+		this.properties = properties;
+		this.references = references;
+		this.dependents = dependents;
+		this.resolvedValues = resolvedValues;
+	}
+
+	/**
+	 * @param properties the raw property values, not copied and therefore expected not to change
+	 * @throws CircularPropertyReferenceException if properties refer to each other in a cycle
+	 */
+	public static PropertyResolutionGraph build(final Map<String, String> properties, final PropertyResolver propertyResolver) {
+		final PropertyResolutionGraph graph = new PropertyResolutionGraph(propertyResolver, properties, Maps.<String, String> newHashMap(),
+				HashMultimap.<String, String> create(), Maps.<String, String> newHashMap());
+		for (final Map.Entry<String, String> property : properties.entrySet()) {
+			graph.link(property.getKey(), property.getValue());
+		}
+		for (final String property : graph.references.keySet()) {
+			graph.resolve(property);
+		}
+		return graph;
+	}
+
+	/**
+	 * Rebuilds a graph from the references and resolved values of a graph built by {@link #build(Map, PropertyResolver)} for the same properties and
+	 * resolver, e.g. stored in a precompiled snapshot, without inspecting or resolving any value.
+	 *
+	 * @param references the property each referring property refers to, see {@link #getReferences()}
+	 * @param resolvedValues the resolved value of each referring property resolving to a value
+	 */
+	public static PropertyResolutionGraph precompiled(final Map<String, String> properties, final PropertyResolver propertyResolver,
+			final Map<String, String> references, final Map<String, String> resolvedValues) {
+		final SetMultimap<String, String> dependents = HashMultimap.create();
+		for (final Map.Entry<String, String> reference : references.entrySet()) {
+			dependents.put(reference.getValue(), reference.getKey());
+		}
+		return new PropertyResolutionGraph(propertyResolver, properties, Maps.newHashMap(references), dependents, Maps.newHashMap(resolvedValues));
+	}
+
+	/**
+	 * @param changedProperties properties added, modified or removed since this graph was built
+	 * @return a graph of the given properties, only re-resolving the changed properties and those referring to them, changes to plain properties
+	 *         nothing refers to share the links of this graph without copying them
+	 * @throws CircularPropertyReferenceException if the changes introduce a cycle
+	 */
+	public PropertyResolutionGraph update(final Map<String, String> newProperties, final Set<String> changedProperties) {
+		if (!affectsLinks(newProperties, changedProperties)) {
+			return new PropertyResolutionGraph(propertyResolver, newProperties, references, dependents, resolvedValues);
+		}
+		final PropertyResolutionGraph graph = new PropertyResolutionGraph(propertyResolver, newProperties, Maps.newHashMap(references),
+				HashMultimap.create(dependents), Maps.newHashMap(resolvedValues));
+		for (final String property : changedProperties) {
+			graph.unlink(property);
+			if (newProperties.containsKey(property)) {
+				graph.link(property, newProperties.get(property));
+			}
+		}
+
+		final Set<String> invalidated = graph.dependentsOf(changedProperties);
+		graph.resolvedValues.keySet().removeAll(invalidated);
+		for (final String property : invalidated) {
+			if (graph.references.containsKey(property)) {
+				graph.resolve(property);
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * @return the fully resolved value of the given property, or null if it, or a property it refers to, does not exist
+	 */
+	public String getResolvedValue(final String property) {
+		return references.containsKey(property) ? resolvedValues.get(property) : properties.get(property);
+	}
+
+	/**
+	 * @return the property each property referring to another through a placeholder refers to
+	 */
+	public Map<String, String> getReferences() {
+		return Collections.unmodifiableMap(references);
+	}
+
+	/**
+	 * Walks the reverse references of the given properties only, the cost is proportional to the number of dependents rather than the graph size.
+	 *
+	 * @return every property transitively referring to any of the given properties, excluding the given properties themselves
+	 */
+	public Set<String> getDependents(final Set<String> properties) {
+		final Set<String> dependentsOf = dependentsOf(properties);
+		dependentsOf.removeAll(properties);
+		return dependentsOf;
+	}
+
+	/**
+	 * @return the given properties together with every property transitively referring to any of them
+	 */
+	private Set<String> dependentsOf(final Set<String> changedProperties) {
+		final Set<String> closure = Sets.newHashSet(changedProperties);
+		final Deque<String> pending = new ArrayDeque<String>(changedProperties);
+		while (!pending.isEmpty()) {
+			for (final String dependent : dependents.get(pending.pop())) {
+				if (closure.add(dependent)) {
+					pending.push(dependent);
+				}
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * @return whether any of the given properties refers to, or is referred to by, another property before or after the change
+	 */
+	private boolean affectsLinks(final Map<String, String> newProperties, final Set<String> changedProperties) {
+		for (final String property : changedProperties) {
+			if (references.containsKey(property) || dependents.containsKey(property)) {
+				return true;
+			}
+			final String value = newProperties.get(property);
+			if (null != value && propertyResolver.requiresFurtherResoltuion(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void link(final String property, final String value) {
+		if (propertyResolver.requiresFurtherResoltuion(value)) {
+			final String reference = propertyResolver.resolveProperty(value);
+			references.put(property, reference);
+			dependents.put(reference, property);
+		}
+	}
+
+	private void unlink(final String property) {
+		final String reference = references.remove(property);
+		if (null != reference) {
+			dependents.remove(reference, property);
+		}
+	}
+
+	/**
+	 * Follows the references of the given property until reaching a plain or already resolved value, caching the value for every property on the way.
+	 */
+	private void resolve(final String property) {
+		if (resolvedValues.containsKey(property)) {
+			return;
+		}
+		final Set<String> chain = Sets.newLinkedHashSet();
+		String current = property;
+		String value;
+		while (true) {
+			if (!chain.add(current)) {
+				final List<String> cycle = Lists.newArrayList(chain);
+				cycle.add(current);
+				throw new CircularPropertyReferenceException(Collections.unmodifiableList(cycle.subList(cycle.indexOf(current), cycle.size())));
+			}
+			if (resolvedValues.containsKey(current)) {
+				value = resolvedValues.get(current);
+				break;
+			}
+			final String reference = references.get(current);
+			if (null == reference) {
+				value = properties.get(current);
+				break;
+			}
+			current = reference;
+		}
+
+		if (null != value) {
+			for (final String resolved : chain) {
+				if (references.containsKey(resolved)) {
+					resolvedValues.put(resolved, value);
+				}
+			}
+		}
+	}
+}
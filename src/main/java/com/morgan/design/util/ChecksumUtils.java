@@ -0,0 +1,42 @@
+package com.morgan.design.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import org.springframework.core.io.Resource;
+
+import com.google.common.io.Closeables;
+
+public class ChecksumUtils {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private ChecksumUtils() {
+		throw new IllegalStateException("Constructor is private");
+	}
+
+	/**
+	 * Calculates a CRC32 checksum of the content of the given {@link Resource}, streaming its content through a fixed size buffer.
+	 * 
+	 * @param resource The resource to read
+	 * @return The CRC32 checksum of the resource content
+	 * @throws IOException if the resource cannot be read
+	 */
+	public static long crc32(final Resource resource) throws IOException {
+		final CRC32 crc32 = new CRC32();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final InputStream inputStream = resource.getInputStream();
+		try {
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				crc32.update(buffer, 0, read);
+			}
+		}
+		finally {
+			Closeables.closeQuietly(inputStream);
+		}
+		return crc32.getValue();
+	}
+
+}
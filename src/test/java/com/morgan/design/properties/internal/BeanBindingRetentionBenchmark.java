@@ -0,0 +1,66 @@
+package com.morgan.design.properties.internal;
+
+import java.util.Properties;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+
+import com.morgan.design.properties.ReloadableProperty;
+import com.morgan.design.properties.bean.PropertyModifiedEvent;
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+/**
+ * Simulates a long running application creating and dropping short lived beans between reloads, reporting the live bindings, used heap and reload
+ * fan-out time after each round, all of which should stay flat. Run with optional round count (default 20) and beans per round (default 100000)
+ * arguments.
+ */
+public class BeanBindingRetentionBenchmark {
+
+	private static final int LONG_LIVED_BEANS = 1000;
+
+	public static void main(final String[] args) throws Exception {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		final int beansPerRound = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+		final ReadablePropertySourcesPlaceholderConfigurer configurer = new ReadablePropertySourcesPlaceholderConfigurer(null,
+				new SubstitutingPropertyResolver(), new DefaultPropertyConversionService());
+		final Properties properties = new Properties();
+		properties.setProperty("benchmark.value", "0");
+		configurer.setProperties(properties);
+		configurer.mergeProperties();
+		final ReloadablePropertyPostProcessor processor = new ReloadablePropertyPostProcessor(configurer, null, new DefaultPropertyConversionService());
+
+		final Bean[] longLived = new Bean[LONG_LIVED_BEANS];
+		for (int i = 0; i < longLived.length; i++) {
+			longLived[i] = new Bean();
+			processor.postProcessAfterInstantiation(longLived[i], "longLived");
+		}
+
+		for (int round = 1; round <= rounds; round++) {
+			for (int i = 0; i < beansPerRound; i++) {
+				processor.postProcessAfterInstantiation(new Bean(), "shortLived");
+			}
+			System.gc();
+
+			final long start = System.nanoTime();
+			processor.handlePropertyChange(new PropertyModifiedEvent("benchmark.value", "0", "0"));
+			final long fanOut = System.nanoTime() - start;
+
+			System.gc();
+			final Runtime runtime = Runtime.getRuntime();
+			System.out.println(String.format("Round %2d: %,9d live bindings, %,12d bytes used, %,10d us reload fan-out", round,
+					configurer.getLiveBindingCount(), runtime.totalMemory() - runtime.freeMemory(), fanOut / 1000));
+		}
+		if (longLived[0].value != 0) {
+			throw new IllegalStateException("Long lived bean lost its value");
+		}
+	}
+
+	static class Bean {
+		@ReloadableProperty("benchmark.value")
+		private int value = -1;
+	}
+}
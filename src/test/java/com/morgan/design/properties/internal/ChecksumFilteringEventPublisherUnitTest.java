@@ -0,0 +1,94 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+
+public class ChecksumFilteringEventPublisherUnitTest {
+
+	private final List<Resource> published = Lists.newArrayList();
+
+	private File file;
+	private Resource resource;
+	private ChecksumFilteringEventPublisher publisher;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("checksum", ".properties");
+		Files.write("a=1", this.file, Charsets.UTF_8);
+		this.resource = new FileSystemResource(this.file);
+
+		this.publisher = new ChecksumFilteringEventPublisher(new EventPublisher() {
+			@Override
+			public void onResourceChanged(final Resource changed) {
+				published.add(changed);
+			}
+		});
+		this.publisher.prime(new Resource[] { this.resource });
+	}
+
+	@After
+	public void tearDown() {
+		this.file.delete();
+	}
+
+	@Test
+	public void shouldSkipReloadWhenContentUnchanged() throws IOException {
+		Files.touch(this.file);
+		this.publisher.onResourceChanged(this.resource);
+
+		Files.write("a=1", this.file, Charsets.UTF_8);
+		this.publisher.onResourceChanged(this.resource);
+
+		assertThat(this.published.isEmpty(), is(true));
+		assertThat(this.publisher.getSkippedReloadCount(), is(2L));
+		assertThat(this.publisher.getPerformedReloadCount(), is(0L));
+	}
+
+	@Test
+	public void shouldReloadWhenContentChanged() throws IOException {
+		Files.write("a=2", this.file, Charsets.UTF_8);
+		this.publisher.onResourceChanged(this.resource);
+		this.publisher.onResourceChanged(this.resource);
+
+		assertThat(this.published.size(), is(1));
+		assertThat(this.publisher.getSkippedReloadCount(), is(1L));
+		assertThat(this.publisher.getPerformedReloadCount(), is(1L));
+	}
+
+	@Test
+	public void shouldRetryFailedReloadWhenContentUnchanged() throws IOException {
+		final List<Resource> attempted = Lists.newArrayList();
+		final ChecksumFilteringEventPublisher failingOnce = new ChecksumFilteringEventPublisher(new ChecksumFilteringEventPublisher.Reloader() {
+			@Override
+			public boolean reload(final Resource changed) {
+				attempted.add(changed);
+				return attempted.size() > 1;
+			}
+		});
+		failingOnce.prime(new Resource[] { this.resource });
+
+		Files.write("a=2", this.file, Charsets.UTF_8);
+		failingOnce.onResourceChanged(this.resource);
+		failingOnce.onResourceChanged(this.resource);
+		failingOnce.onResourceChanged(this.resource);
+
+		assertThat(attempted.size(), is(2));
+		assertThat(failingOnce.getPerformedReloadCount(), is(2L));
+		assertThat(failingOnce.getSkippedReloadCount(), is(1L));
+	}
+}
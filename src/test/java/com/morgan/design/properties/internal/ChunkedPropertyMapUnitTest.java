@@ -0,0 +1,143 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class ChunkedPropertyMapUnitTest {
+
+	@Test
+	public void shouldHoldSameMappingsAsSourceMap() {
+		for (final boolean compact : new boolean[] { false, true }) {
+			final Map<String, String> source = properties(10000);
+
+			final ChunkedPropertyMap chunked = ChunkedPropertyMap.copyOf(source, compact);
+
+			assertThat(chunked.size(), is(source.size()));
+			assertThat(chunked.equals(source), is(true));
+			assertThat(source.equals(chunked), is(true));
+			assertThat(chunked.hashCode(), is(source.hashCode()));
+			assertThat(chunked.get("key5000"), is("value8"));
+			assertThat(chunked.containsKey("missing"), is(false));
+		}
+	}
+
+	@Test
+	public void shouldApplyChangesLeavingOriginalUnchanged() {
+		for (final boolean compact : new boolean[] { false, true }) {
+			final Map<String, String> source = properties(10000);
+			final ChunkedPropertyMap original = ChunkedPropertyMap.copyOf(source, compact);
+
+			final ChunkedPropertyMap changed = original.withChanges(ImmutableMap.of("key1", "changed", "added", "new"), ImmutableSet.of("key2", "missing"));
+
+			final Map<String, String> expected = Maps.newHashMap(source);
+			expected.put("key1", "changed");
+			expected.put("added", "new");
+			expected.remove("key2");
+			assertThat(changed.equals(expected), is(true));
+			assertThat(changed.size(), is(expected.size()));
+			assertThat(original.equals(source), is(true));
+			assertThat(original.get("key1"), is("value1"));
+			assertThat(original.get("added"), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void shouldShareUnchangedChunksBetweenGenerations() {
+		final ChunkedPropertyMap original = ChunkedPropertyMap.copyOf(properties(10000), true);
+
+		final ChunkedPropertyMap changed = original.withChanges(ImmutableMap.of("key1", "changed"), ImmutableSet.<String> of());
+
+		int shared = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (original.get("key" + i) == changed.get("key" + i)) {
+				shared++;
+			}
+		}
+		assertThat(shared, is(10000 - 1));
+	}
+
+	@Test
+	public void shouldShareChangedValuesWithEqualValuesOfUnchangedChunks() {
+		final Map<String, String> source = properties(10000);
+		source.put("key109", "unique");
+		ChunkedPropertyMap chunked = ChunkedPropertyMap.copyOf(source, true);
+
+		for (int i = 0; i < 100; i++) {
+			chunked = chunked.withChanges(ImmutableMap.of("key" + i, new String("unique")), ImmutableSet.<String> of());
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(chunked.get("key" + i), is(sameInstance(chunked.get("key109"))));
+		}
+	}
+
+	@Test
+	public void shouldKeepMappingsWhenDroppingValuesNoLongerInUse() {
+		ChunkedPropertyMap chunked = ChunkedPropertyMap.copyOf(properties(10), true);
+
+		for (int i = 0; i < 2000; i++) {
+			chunked = chunked.withChanges(ImmutableMap.of("key1", "changed" + i), ImmutableSet.<String> of());
+		}
+
+		final Map<String, String> expected = properties(10);
+		expected.put("key1", "changed1999");
+		assertThat(chunked.equals(expected), is(true));
+	}
+
+	@Test
+	public void shouldResplitOnceGrownOrShrunk() {
+		ChunkedPropertyMap chunked = ChunkedPropertyMap.copyOf(ImmutableMap.<String, String> of(), false);
+		chunked = chunked.withChanges(properties(20000), ImmutableSet.<String> of());
+		assertThat(chunked.equals(properties(20000)), is(true));
+
+		chunked = chunked.withChanges(ImmutableMap.<String, String> of(), Sets.newHashSet(properties(19990).keySet()));
+		assertThat(chunked.size(), is(10));
+		assertThat(chunked.get("key19995"), is("value1"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotBeModifiable() {
+		ChunkedPropertyMap.copyOf(ImmutableMap.of("a", "1"), false)
+			.put("b", "2");
+	}
+
+	@Test
+	public void shouldKeepKeysSortedAcrossChanges() {
+		final Map<String, String> source = properties(5000);
+		SortedKeys keys = SortedKeys.of(source.keySet());
+
+		keys = keys.withChanges(ImmutableList.of("key1000a", "aaa", "zzz"), ImmutableSet.of("key1001", "key1002"));
+
+		assertThat(keys.withPrefix("key100"), is((Object) ImmutableList.of("key100", "key1000", "key1000a", "key1003", "key1004", "key1005", "key1006",
+				"key1007", "key1008", "key1009")));
+		assertThat(keys.withPrefix("a"), is((Object) ImmutableList.of("aaa")));
+		assertThat(keys.withPrefix("z"), is((Object) ImmutableList.of("zzz")));
+		assertThat(keys.withPrefix("missing").isEmpty(), is(true));
+
+		final Set<String> all = Sets.newHashSet(source.keySet());
+		keys = keys.withChanges(ImmutableList.<String> of(), all);
+		assertThat(keys.withPrefix(""), is((Object) Lists.newArrayList("aaa", "key1000a", "zzz")));
+	}
+
+	private static Map<String, String> properties(final int count) {
+		final Map<String, String> properties = Maps.newHashMap();
+		for (int i = 0; i < count; i++) {
+			properties.put("key" + i, "value" + i % 13);
+		}
+		return properties;
+	}
+}
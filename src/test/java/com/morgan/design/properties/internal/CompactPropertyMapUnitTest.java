@@ -0,0 +1,59 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+public class CompactPropertyMapUnitTest {
+
+	@Test
+	public void shouldHoldSameMappingsAsSourceMap() {
+		final Map<String, String> source = Maps.newHashMap();
+		for (int i = 0; i < 10000; i++) {
+			source.put("com.morgan.design.properties.group" + i % 7 + ".key" + i, "value" + i % 13);
+		}
+
+		final CompactPropertyMap compact = CompactPropertyMap.copyOf(source);
+
+		assertThat(compact.size(), is(source.size()));
+		assertThat(compact.equals(source), is(true));
+		assertThat(source.equals(compact), is(true));
+		assertThat(compact.hashCode(), is(source.hashCode()));
+		assertThat(compact.get("com.morgan.design.properties.group3.key5000"), is(nullValue()));
+		assertThat(compact.get("com.morgan.design.properties.group2.key5000"), is("value8"));
+		assertThat(compact.containsKey("com.morgan.design.properties.group2.key5000"), is(true));
+		assertThat(compact.containsKey("missing"), is(false));
+	}
+
+	@Test
+	public void shouldHandleEmptyMap() {
+		final CompactPropertyMap compact = CompactPropertyMap.copyOf(ImmutableMap.<String, String> of());
+
+		assertThat(compact.isEmpty(), is(true));
+		assertThat(compact.get("missing"), is(nullValue()));
+		assertThat(compact.entrySet()
+			.iterator()
+			.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldHoldRepeatedValuesOnce() {
+		final CompactPropertyMap compact = CompactPropertyMap.copyOf(ImmutableMap.of("a", new String("shared"), "b", new String("shared")));
+
+		assertThat(compact.get("a"), is(sameInstance(compact.get("b"))));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotBeModifiable() {
+		CompactPropertyMap.copyOf(ImmutableMap.of("a", "1"))
+			.put("b", "2");
+	}
+}
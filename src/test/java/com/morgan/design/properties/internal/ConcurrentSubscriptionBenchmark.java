@@ -0,0 +1,110 @@
+package com.morgan.design.properties.internal;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
+import com.morgan.design.properties.ReloadableProperty;
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.event.GuavaPropertyChangedEventNotifier;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+/**
+ * Creates prototype style beans on several threads while another thread keeps reloading the property they bind, reporting the bean creation and
+ * reload throughput and checking every bean ends up with the last reloaded value. Run with optional thread count (default 8) and beans per thread
+ * (default 50000) arguments.
+ */
+public class ConcurrentSubscriptionBenchmark {
+
+	public static void main(final String[] args) throws Exception {
+		final int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		final int beansPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+		final GuavaPropertyChangedEventNotifier eventNotifier = new GuavaPropertyChangedEventNotifier(new EventBus());
+		final ReadablePropertySourcesPlaceholderConfigurer configurer = new ReadablePropertySourcesPlaceholderConfigurer(eventNotifier,
+				new SubstitutingPropertyResolver(), new DefaultPropertyConversionService());
+		final Properties properties = new Properties();
+		properties.setProperty("benchmark.value", "0");
+		configurer.setProperties(properties);
+		configurer.mergeProperties();
+		final ReloadablePropertyPostProcessor processor = new ReloadablePropertyPostProcessor(configurer, eventNotifier,
+				new DefaultPropertyConversionService());
+		eventNotifier.register(processor);
+		processor.postProcessAfterInstantiation(new Bean(), "first");
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount + 1);
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicBoolean creating = new AtomicBoolean(true);
+
+		final Future<Integer> reloads = executor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				start.await();
+				int reload = 0;
+				while (creating.get()) {
+					configurer.setProperty("benchmark.value", String.valueOf(++reload));
+				}
+				return reload;
+			}
+		});
+		final List<Future<List<Bean>>> creators = Lists.newArrayList();
+		for (int thread = 0; thread < threadCount; thread++) {
+			creators.add(executor.submit(new Callable<List<Bean>>() {
+				@Override
+				public List<Bean> call() throws Exception {
+					start.await();
+					final List<Bean> beans = Lists.newArrayListWithCapacity(beansPerThread);
+					for (int i = 0; i < beansPerThread; i++) {
+						final Bean bean = new Bean();
+						processor.postProcessAfterInstantiation(bean, "bean");
+						beans.add(bean);
+					}
+					return beans;
+				}
+			}));
+		}
+
+		final long started = System.nanoTime();
+		start.countDown();
+		final List<Bean> beans = Lists.newArrayList();
+		final long created;
+		final int reloadCount;
+		try {
+			for (final Future<List<Bean>> creator : creators) {
+				beans.addAll(creator.get());
+			}
+			created = System.nanoTime() - started;
+		}
+		finally {
+			creating.set(false);
+			reloadCount = reloads.get();
+			executor.shutdown();
+		}
+
+		int stale = 0;
+		for (final Bean bean : beans) {
+			if (bean.value != reloadCount) {
+				stale++;
+			}
+		}
+		System.out.println(String.format("%,d beans on %d threads in %,d ms (%,d ns per bean), %,d reloads meanwhile, %,d beans stale", beans.size(),
+				threadCount, created / 1000000, created / beans.size(), reloadCount, stale));
+	}
+
+	static class Bean {
+		@ReloadableProperty("benchmark.value")
+		private int value;
+	}
+}
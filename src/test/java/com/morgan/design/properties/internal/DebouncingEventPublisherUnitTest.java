@@ -0,0 +1,73 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import com.google.common.collect.Lists;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+
+public class DebouncingEventPublisherUnitTest {
+
+	private final Resource resource1 = new ByteArrayResource("a=1".getBytes(), "resource1");
+	private final Resource resource2 = new ByteArrayResource("b=2".getBytes(), "resource2");
+
+	private final List<Resource> published = Lists.newCopyOnWriteArrayList();
+
+	private ResourcePollingScheduler scheduler;
+
+	@Before
+	public void setUp() {
+		this.scheduler = new ResourcePollingScheduler(1, 1000);
+	}
+
+	@After
+	public void tearDown() {
+		this.scheduler.shutdown();
+	}
+
+	@Test
+	public void shouldCoalesceBurstOfEventsIntoSingleEventPerResource() throws Exception {
+		final DebouncingEventPublisher publisher = createPublisher(100, 1000);
+
+		for (int i = 0; i < 5; i++) {
+			publisher.onResourceChanged(this.resource1);
+		}
+		publisher.onResourceChanged(this.resource2);
+		Thread.sleep(500);
+
+		assertThat(this.published.size(), is(2));
+		assertThat(publisher.getCoalescedEventCount(), is(4L));
+		assertThat(publisher.getPublishedEventCount(), is(2L));
+	}
+
+	@Test
+	public void shouldPublishOnceMaxWaitElapsedWhileEventsKeepArriving() throws Exception {
+		final DebouncingEventPublisher publisher = createPublisher(100, 300);
+
+		final long start = System.currentTimeMillis();
+		while (this.published.isEmpty() && System.currentTimeMillis() - start < 2000) {
+			publisher.onResourceChanged(this.resource1);
+			Thread.sleep(20);
+		}
+
+		assertThat(this.published.size(), is(1));
+		assertThat(System.currentTimeMillis() - start < 1000, is(true));
+	}
+
+	private DebouncingEventPublisher createPublisher(final long quietPeriod, final long maxWait) {
+		return new DebouncingEventPublisher(new EventPublisher() {
+			@Override
+			public void onResourceChanged(final Resource resource) {
+				published.add(resource);
+			}
+		}, this.scheduler, quietPeriod, maxWait);
+	}
+}
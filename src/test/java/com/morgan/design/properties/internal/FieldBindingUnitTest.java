@@ -0,0 +1,67 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+import org.springframework.util.ReflectionUtils;
+
+public class FieldBindingUnitTest {
+
+	@Test
+	public void shouldSetPrimitiveFields() {
+		final Fields fields = new Fields();
+
+		binding("intValue").set(fields, 1);
+		binding("longValue").set(fields, 2L);
+		binding("booleanValue").set(fields, true);
+		binding("doubleValue").set(fields, 3.5d);
+		binding("shortValue").set(fields, (short) 4);
+
+		assertThat(fields.intValue, is(1));
+		assertThat(fields.longValue, is(2L));
+		assertThat(fields.booleanValue, is(true));
+		assertThat(fields.doubleValue, is(3.5d));
+		assertThat(fields.shortValue, is((short) 4));
+	}
+
+	@Test
+	public void shouldSetReferenceAndStaticFields() {
+		final Fields fields = new Fields();
+
+		binding("stringValue").set(fields, "value");
+		binding("staticValue").set(fields, "static");
+
+		assertThat(fields.stringValue, is("value"));
+		assertThat(Fields.staticValue, is("static"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectValueOfOtherType() {
+		binding("stringValue").set(new Fields(), 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNullForPrimitiveField() {
+		binding("intValue").set(new Fields(), null);
+	}
+
+	private FieldBinding binding(final String name) {
+		final Field field = ReflectionUtils.findField(Fields.class, name);
+		ReflectionUtils.makeAccessible(field);
+		return new FieldBinding(field, name);
+	}
+
+	@SuppressWarnings("unused")
+	private static class Fields {
+		private static String staticValue;
+		private int intValue;
+		private long longValue;
+		private boolean booleanValue;
+		private double doubleValue;
+		private short shortValue;
+		private String stringValue;
+	}
+}
@@ -0,0 +1,82 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.google.common.collect.ImmutableMap;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+public class LastKnownGoodSnapshotStoreUnitTest {
+
+	private static final Map<Resource, Map<String, String>> NO_SOURCES = ImmutableMap.of();
+	private static final Map<Resource, Long> NO_CHECKSUMS = ImmutableMap.of();
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("lastKnownGood", ".bin");
+		this.file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		this.file.delete();
+	}
+
+	@Test
+	public void shouldWriteLatestSnapshotOfBurstOnceClosed() {
+		final Properties properties = new Properties();
+		properties.setProperty("counter", "0");
+		PropertySnapshot snapshot = PropertySnapshot.of(properties, new SubstitutingPropertyResolver());
+
+		final LastKnownGoodSnapshotStore store = new LastKnownGoodSnapshotStore(this.file);
+		for (int i = 1; i <= 100; i++) {
+			snapshot = snapshot.withChanges(ImmutableMap.of("counter", String.valueOf(i)), Collections.<String> emptySet());
+			store.storeLater(snapshot, NO_SOURCES, NO_CHECKSUMS);
+		}
+		store.close();
+
+		assertThat(new LastKnownGoodSnapshotStore(this.file).load()
+			.getProperties(), is((Object) ImmutableMap.of("counter", "100")));
+	}
+
+	@Test
+	public void shouldStoreRightAwayOnceClosed() {
+		final Properties properties = new Properties();
+		properties.setProperty("key", "value");
+
+		final LastKnownGoodSnapshotStore store = new LastKnownGoodSnapshotStore(this.file);
+		store.close();
+		store.storeLater(PropertySnapshot.of(properties, new SubstitutingPropertyResolver()), NO_SOURCES, NO_CHECKSUMS);
+
+		assertThat(this.file.exists(), is(true));
+	}
+
+	@Test
+	public void shouldStoreSourcesAlongSnapshot() {
+		final Properties properties = new Properties();
+		properties.setProperty("key", "value");
+		final Resource source = new FileSystemResource("/config/app.properties");
+
+		final LastKnownGoodSnapshotStore store = new LastKnownGoodSnapshotStore(this.file);
+		store.storeLater(PropertySnapshot.of(properties, new SubstitutingPropertyResolver()),
+				ImmutableMap.<Resource, Map<String, String>> of(source, ImmutableMap.of("key", "value")), ImmutableMap.of(source, 42L));
+		store.close();
+
+		assertThat(new LastKnownGoodSnapshotStore(this.file).load()
+			.getSource(PropertySnapshotFile.uriOf(source)), is((Object) ImmutableMap.of("key", "value")));
+	}
+}
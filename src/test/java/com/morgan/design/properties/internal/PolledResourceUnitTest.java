@@ -0,0 +1,77 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+
+import com.google.common.base.Charsets;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+
+public class PolledResourceUnitTest {
+
+	private File jar;
+	private int changes;
+
+	private final EventPublisher publisher = new EventPublisher() {
+		@Override
+		@SuppressWarnings("unqualified-field-access")
+		public void onResourceChanged(final Resource resource) {
+			changes++;
+		}
+	};
+
+	@Before
+	public void setUp() throws IOException {
+		this.jar = File.createTempFile("polled", ".jar");
+		writeJar("a=1");
+	}
+
+	@After
+	public void tearDown() {
+		this.jar.delete();
+	}
+
+	@Test
+	public void shouldDetectChangedJarEntry() throws IOException {
+		final PolledResource polledResource = PolledResource.forResource(new UrlResource("jar:" + this.jar.toURI() + "!/jarred.properties"), this.publisher);
+
+		polledResource.poll();
+		assertThat(this.changes, is(0));
+
+		writeJar("a=22");
+		polledResource.poll();
+		assertThat(this.changes, is(1));
+
+		polledResource.poll();
+		assertThat(this.changes, is(1));
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectResourceWhichCannotBePolled() throws IOException {
+		PolledResource.forResource(new ByteArrayResource("a=1".getBytes(Charsets.UTF_8)), this.publisher);
+	}
+
+	private void writeJar(final String content) throws IOException {
+		final JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(this.jar));
+		try {
+			jarOutputStream.putNextEntry(new ZipEntry("jarred.properties"));
+			jarOutputStream.write(content.getBytes(Charsets.UTF_8));
+			jarOutputStream.closeEntry();
+		}
+		finally {
+			jarOutputStream.close();
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.morgan.design.properties.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+/**
+ * Compares the time taken to merge properties files on a start without and with an up to date precompiled snapshot, run with e.g. <code>-Xmx1g</code>
+ * and an optional key count argument (default 200000) spread over four files, one property in twenty referring to another.
+ */
+public class PrecompiledSnapshotBenchmark {
+
+	private static final int FILE_COUNT = 4;
+	private static final int ROUNDS = 10;
+
+	public static void main(final String[] args) throws IOException {
+		final int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		final File directory = Files.createTempDir();
+		final Resource[] locations = new Resource[FILE_COUNT];
+		for (int i = 0; i < FILE_COUNT; i++) {
+			locations[i] = new FileSystemResource(writeProperties(new File(directory, "file" + i + ".properties"), i, keyCount / FILE_COUNT));
+		}
+		final File precompiled = new File(directory, "precompiled.bin");
+		createConfigurer(locations, null).compileSnapshot()
+			.write(precompiled);
+
+		long cold = Long.MAX_VALUE;
+		long compiled = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			cold = Math.min(cold, timeStart(locations, null));
+			compiled = Math.min(compiled, timeStart(locations, precompiled));
+		}
+
+		System.out.println(String.format("%,d keys in %d files", keyCount, FILE_COUNT));
+		System.out.println(String.format("Parsed and resolved:  %,8d ms", cold / 1000000));
+		System.out.println(String.format("Precompiled snapshot: %,8d ms", compiled / 1000000));
+
+		for (final File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private static long timeStart(final Resource[] locations, final File precompiled) throws IOException {
+		System.gc();
+		final long start = System.nanoTime();
+		createConfigurer(locations, precompiled);
+		return System.nanoTime() - start;
+	}
+
+	private static ReadablePropertySourcesPlaceholderConfigurer createConfigurer(final Resource[] locations, final File precompiled) throws IOException {
+		final ReadablePropertySourcesPlaceholderConfigurer configurer = new ReadablePropertySourcesPlaceholderConfigurer(null,
+				new SubstitutingPropertyResolver(), new DefaultPropertyConversionService());
+		configurer.setLocations(locations);
+		if (null != precompiled) {
+			configurer.setPrecompiledSnapshot(new FileSystemResource(precompiled));
+		}
+		configurer.mergeProperties();
+		return configurer;
+	}
+
+	private static File writeProperties(final File file, final int fileIndex, final int keyCount) throws IOException {
+		final Writer writer = Files.newWriter(file, Charsets.ISO_8859_1);
+		try {
+			for (int i = 0; i < keyCount; i++) {
+				writer.append(key(fileIndex, i))
+					.append('=');
+				if (i % 20 == 19) {
+					// Refers to a plain property of the same file
+					writer.append("${")
+						.append(key(fileIndex, i - 1))
+						.append("}/path");
+				}
+				else {
+					writer.append("value")
+						.append(String.valueOf(i % 100));
+				}
+				writer.append('\n');
+			}
+		}
+		finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static String key(final int fileIndex, final int i) {
+		return new StringBuilder("com.morgan.design.service").append(i % 50)
+			.append(".file")
+			.append(fileIndex)
+			.append(".setting")
+			.append(i)
+			.toString();
+	}
+}
@@ -7,6 +7,8 @@ import static org.junit.Assert.assertThat;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -18,6 +20,7 @@ import org.springframework.core.io.Resource;
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+import com.morgan.design.properties.internal.PropertiesWatcher.WatchMode;
 
 public class PropertiesWatcherUnitTest {
 
@@ -103,6 +106,73 @@ public class PropertiesWatcherUnitTest {
 		wait(_2_SEC);
 	}
 
+	@Test
+	public final void testWatchingASingleWhenPolling() throws IOException, InterruptedException {
+		resetCountDownLatch(this.singleResource.length);
+
+		final PropertiesWatcher propertiesWatcher = createPropertiesWatcher(this.singleResource, WatchMode.POLLING);
+		confirmTestDataNotSet();
+
+		startPropertiesWatcher(propertiesWatcher);
+		wait(_1_SEC);
+
+		modifyPropertiesFile(this.propertiesFile1);
+		wait(_2_SEC);
+		confirmPropertiesFileModified(this.propertiesFile1);
+
+		propertiesWatcher.stop();
+		wait(_2_SEC);
+	}
+
+	@Test
+	public final void testWatchingAFileReplacedByAtomicRename() throws IOException, InterruptedException {
+		final File directory = Files.createTempDir();
+		final File propertiesFile = new File(directory, "renamed.properties");
+		Files.write("a=1", propertiesFile, Charsets.UTF_8);
+		resetCountDownLatch(1);
+
+		final PropertiesWatcher propertiesWatcher = createPropertiesWatcher(new Resource[] { new FileSystemResource(propertiesFile) });
+		startPropertiesWatcher(propertiesWatcher);
+		wait(_1_SEC);
+
+		final File replacement = new File(directory, "renamed.properties.tmp");
+		Files.write("a=2", replacement, Charsets.UTF_8);
+		java.nio.file.Files.move(replacement.toPath(), propertiesFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		wait(_2_SEC);
+		confirmPropertiesFileModified(propertiesFile);
+
+		propertiesWatcher.stop();
+	}
+
+	@Test
+	public final void testWatchingAFileRetargetedBySymlinkSwap() throws IOException, InterruptedException {
+		// Same layout as a Kubernetes ConfigMap volume: app.properties -> ..data/app.properties, ..data -> ..version
+		final Path directory = Files.createTempDir().toPath();
+		final Path data = directory.resolve("..data");
+		java.nio.file.Files.createSymbolicLink(data, createVersion(directory, "..version1", "a=1").getFileName());
+		final Path propertiesFile = java.nio.file.Files.createSymbolicLink(directory.resolve("app.properties"), data.getFileName().resolve("app.properties"));
+		resetCountDownLatch(1);
+
+		final PropertiesWatcher propertiesWatcher = createPropertiesWatcher(new Resource[] { new FileSystemResource(propertiesFile.toFile()) });
+		startPropertiesWatcher(propertiesWatcher);
+		wait(_1_SEC);
+
+		final Path dataTmp = java.nio.file.Files.createSymbolicLink(directory.resolve("..data_tmp"), createVersion(directory, "..version2", "a=2")
+			.getFileName());
+		java.nio.file.Files.move(dataTmp, data, StandardCopyOption.ATOMIC_MOVE);
+		wait(_2_SEC);
+		confirmPropertiesFileModified(propertiesFile.toFile());
+
+		propertiesWatcher.stop();
+	}
+
+	private Path createVersion(final Path directory, final String version, final String content) throws IOException {
+		final Path versionDirectory = java.nio.file.Files.createDirectory(directory.resolve(version));
+		Files.write(content, versionDirectory.resolve("app.properties")
+			.toFile(), Charsets.UTF_8);
+		return versionDirectory;
+	}
+
 	private void resetCountDownLatch(final int count) {
 		this.lock = new CountDownLatch(count);
 	}
@@ -133,6 +203,10 @@ public class PropertiesWatcherUnitTest {
 	}
 
 	private PropertiesWatcher createPropertiesWatcher(final Resource[] resources) throws IOException {
+		return createPropertiesWatcher(resources, WatchMode.NATIVE);
+	}
+
+	private PropertiesWatcher createPropertiesWatcher(final Resource[] resources, final WatchMode watchMode) throws IOException {
 		final PropertiesWatcher propertiesWatcher = new PropertiesWatcher(resources, new EventPublisher() {
 			@Override
 			@SuppressWarnings("unqualified-field-access")
@@ -140,7 +214,7 @@ public class PropertiesWatcherUnitTest {
 				actual = data;
 				lock.countDown();
 			}
-		}, 500);
+		}, 500, watchMode);
 		return propertiesWatcher;
 	}
 }
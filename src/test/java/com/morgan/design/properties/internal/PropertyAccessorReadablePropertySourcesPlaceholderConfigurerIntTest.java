@@ -1,5 +1,6 @@
 package com.morgan.design.properties.internal;
 
+import com.google.common.collect.Maps;
 import com.morgan.design.properties.testBeans.ReloadingAutowiredPropertyBean;
 import org.junit.After;
 import org.junit.Before;
@@ -14,6 +15,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -51,6 +53,9 @@ public class PropertyAccessorReadablePropertySourcesPlaceholderConfigurerIntTest
 
 		final OutputStream newOutputStream = new FileOutputStream(new File(DIR + PROPERTIES));
 		this.loadedProperties.store(newOutputStream, null);
+        this.readablePropertySourcesPlaceholderConfigurer.clearProperty("dynamicProperty.stringValue");
+        this.readablePropertySourcesPlaceholderConfigurer.clearProperty("dynamicELProperty.integerValue");
+        this.readablePropertySourcesPlaceholderConfigurer.clearProperty("dynamicELProperty.stringValue");
 
 		Thread.sleep(2000); // this is a hack -> I need to find an alternative
 
@@ -88,4 +93,16 @@ public class PropertyAccessorReadablePropertySourcesPlaceholderConfigurerIntTest
 
         assertThat(this.bean.getStringELProperty(), is("Altered EL Injected String Value"));
     }
+
+    @Test
+    public void shouldReloadBatchOfAlteredProperties() throws Exception {
+        final Map<String, String> newValues = Maps.newHashMap();
+        newValues.put("dynamicProperty.stringValue", "Altered Injected String Value");
+        newValues.put("dynamicELProperty.integerValue", "#{ 2+2 }");
+
+        readablePropertySourcesPlaceholderConfigurer.setProperties(newValues);
+
+        assertThat(this.bean.getStringProperty(), is("Altered Injected String Value"));
+        assertThat(this.bean.getIntegerELProperty(), is(4));
+    }
 }
@@ -0,0 +1,155 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+public class PropertySnapshotFileUnitTest {
+
+	private final SubstitutingPropertyResolver resolver = new SubstitutingPropertyResolver();
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("snapshot", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		this.file.delete();
+	}
+
+	@Test
+	public void shouldReadSourcesWritten() throws IOException {
+		final PropertySnapshotFile written = PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("key", "value")));
+		written.put("file:/a.properties", 42L, ImmutableMap.of("key", "value", "unicode", "\u00e9\u4e2d", "empty", ""));
+		written.put("file:/b.properties", 7L, ImmutableMap.<String, String> of());
+		written.write(this.file);
+
+		final PropertySnapshotFile read = PropertySnapshotFile.read(this.file);
+
+		assertThat(read.getSourceUris(), contains("file:/a.properties", "file:/b.properties"));
+		assertThat(read.getSource("file:/a.properties", 42L), is((Map<String, String>) ImmutableMap.of("key", "value", "unicode", "\u00e9\u4e2d",
+				"empty", "")));
+		assertThat(read.getSource("file:/b.properties", 7L)
+			.isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldNotReturnSourceOfChangedContent() throws IOException {
+		final PropertySnapshotFile written = PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("key", "value")));
+		written.put("file:/a.properties", 42L, ImmutableMap.of("key", "value"));
+		written.write(this.file);
+
+		final PropertySnapshotFile read = PropertySnapshotFile.read(this.file);
+
+		assertThat(read.getSource("file:/a.properties", 43L), is(nullValue()));
+		assertThat(read.getSource("file:/missing.properties", 42L), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRebuildCompiledSnapshotOfSameProperties() throws IOException {
+		final Map<String, String> properties = ImmutableMap.of("a", "1", "b", "${a}", "c", "${b}", "dangling", "${missing}");
+		PropertySnapshotFile.of(snapshotOf(properties))
+			.write(this.file);
+
+		final PropertySnapshot rebuilt = PropertySnapshotFile.read(this.file)
+			.toSnapshot(propertiesOf(properties), this.resolver, false);
+
+		assertThat(rebuilt.getProperties(), is(properties));
+		assertThat(rebuilt.resolveProperty("c"), is("1"));
+		assertThat(rebuilt.resolveProperty("dangling"), is(nullValue()));
+		assertThat(rebuilt.getPropertiesWithPrefix("")
+			.keySet(), contains("a", "b", "c", "dangling"));
+		assertThat(rebuilt.getDependents(ImmutableSet.of("a")), is((Object) ImmutableSet.of("b", "c")));
+
+		// Changes are resolved through the rebuilt graph as through a built one
+		final PropertySnapshot changed = rebuilt.withChanges(ImmutableMap.of("a", "2"), Collections.<String> emptySet());
+		assertThat(changed.resolveProperty("c"), is("2"));
+	}
+
+	@Test
+	public void shouldNotRebuildCompiledSnapshotOfOtherProperties() throws IOException {
+		PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("a", "1", "b", "${a}")))
+			.write(this.file);
+		final PropertySnapshotFile read = PropertySnapshotFile.read(this.file);
+
+		assertThat(read.toSnapshot(propertiesOf(ImmutableMap.of("a", "2", "b", "${a}")), this.resolver, false), is(nullValue()));
+		assertThat(read.toSnapshot(propertiesOf(ImmutableMap.of("a", "1", "b", "${a}", "c", "3")), this.resolver, false), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReplaceFileWithoutLeavingTemporaryFile() throws IOException {
+		PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("key", "first")))
+			.write(this.file);
+		PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("key", "second")))
+			.write(this.file);
+
+		assertThat(PropertySnapshotFile.read(this.file)
+			.getProperties(), is((Map<String, String>) ImmutableMap.of("key", "second")));
+		assertThat(new File(this.file.getParentFile(), this.file.getName() + ".tmp").exists(), is(false));
+	}
+
+	@Test
+	public void shouldWriteFileReadableByOwnerOnly() throws IOException {
+		assumeTrue(FileSystems.getDefault()
+			.supportedFileAttributeViews()
+			.contains("posix"));
+
+		PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("password", "secret")))
+			.write(this.file);
+
+		assertThat(java.nio.file.Files.getPosixFilePermissions(this.file.toPath()), is((Object) PosixFilePermissions.fromString("rw-------")));
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectFileOfOtherFormat() throws IOException {
+		Files.write("a=1", this.file, Charsets.ISO_8859_1);
+
+		PropertySnapshotFile.read(this.file);
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectTruncatedFile() throws IOException {
+		final PropertySnapshotFile written = PropertySnapshotFile.of(snapshotOf(ImmutableMap.of("key", "value")));
+		written.put("file:/a.properties", 42L, ImmutableMap.of("key", "value"));
+		written.write(this.file);
+		final byte[] content = Files.toByteArray(this.file);
+		final byte[] truncated = new byte[content.length - 3];
+		System.arraycopy(content, 0, truncated, 0, truncated.length);
+		Files.write(truncated, this.file);
+
+		PropertySnapshotFile.read(this.file);
+	}
+
+	private PropertySnapshot snapshotOf(final Map<String, String> properties) {
+		return PropertySnapshot.of(propertiesOf(properties), this.resolver);
+	}
+
+	private static Properties propertiesOf(final Map<String, String> map) {
+		final Properties properties = new Properties();
+		properties.putAll(map);
+		return properties;
+	}
+}
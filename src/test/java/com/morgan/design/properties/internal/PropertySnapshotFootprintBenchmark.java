@@ -0,0 +1,129 @@
+package com.morgan.design.properties.internal;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.morgan.design.properties.resolver.PropertyResolver;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+/**
+ * Compares the retained heap and lookup speed of a {@link PropertySnapshot}, with and without compact storage, against the {@link Properties} it is
+ * built from, and of a compact snapshot again after a series of changes, run with e.g. <code>-Xmx1g</code> and an optional key count argument
+ * (default 100000).
+ */
+public class PropertySnapshotFootprintBenchmark {
+
+	private static final int LOOKUP_ROUNDS = 20;
+	private static final int GENERATIONS = 5000;
+	private static final int CHANGES_PER_GENERATION = 20;
+
+	private static final PropertyResolver RESOLVER = new SubstitutingPropertyResolver();
+
+	public static void main(final String[] args) {
+		final int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		// Lookup keys are equal to but not the same instances as the stored keys, and part of the baseline
+		final String[] lookups = new String[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			lookups[i] = key(i);
+		}
+
+		final long baseline = usedHeap();
+		final Properties properties = createProperties(keyCount);
+		final long propertiesFootprint = usedHeap() - baseline;
+		final long propertiesLookup = timeLookups(properties, lookups);
+
+		PropertySnapshot snapshot = PropertySnapshot.of(properties, RESOLVER, false);
+		properties.clear();
+		final long plainFootprint = usedHeap() - baseline;
+		final long plainLookup = timeLookups(snapshot.getProperties(), lookups);
+
+		snapshot = null;
+		snapshot = PropertySnapshot.of(createProperties(keyCount), RESOLVER, true);
+		final long compactFootprint = usedHeap() - baseline;
+		final long compactLookup = timeLookups(snapshot.getProperties(), lookups);
+
+		// Every generation sets values equal to, but not the same instances as, values already held, only the last generation is kept
+		final Random random = new Random(42);
+		final long changesStart = System.nanoTime();
+		for (int generation = 0; generation < GENERATIONS; generation++) {
+			final Map<String, String> modified = Maps.newHashMap();
+			for (int i = 0; i < CHANGES_PER_GENERATION; i++) {
+				modified.put(key(random.nextInt(keyCount)), value(random.nextInt(keyCount)));
+			}
+			snapshot = snapshot.withChanges(modified, ImmutableSet.<String> of());
+		}
+		final long changesTime = System.nanoTime() - changesStart;
+		final long changedFootprint = usedHeap() - baseline;
+		final long changedLookup = timeLookups(snapshot.getProperties(), lookups);
+
+		System.out.println(String.format("%,d keys, %,d changes over %d generations", keyCount, GENERATIONS * CHANGES_PER_GENERATION, GENERATIONS));
+		print("Properties:", propertiesFootprint, propertiesLookup);
+		print("Snapshot:", plainFootprint, plainLookup);
+		print("Compact snapshot:", compactFootprint, compactLookup);
+		print("After changes:", changedFootprint, changedLookup);
+		System.out.println(String.format("Changes applied in %,d ms", changesTime / 1000000));
+	}
+
+	private static void print(final String label, final long footprint, final long lookup) {
+		System.out.println(String.format("%-18s %,12d bytes, %,12d ns per lookup round", label, footprint, lookup));
+	}
+
+	/**
+	 * Dotted keys sharing long prefixes, with values repeating as in typical environment specific property files.
+	 */
+	private static Properties createProperties(final int keyCount) {
+		final Properties properties = new Properties();
+		for (int i = 0; i < keyCount; i++) {
+			properties.setProperty(key(i), value(i));
+		}
+		return properties;
+	}
+
+	private static String key(final int i) {
+		return new StringBuilder("com.morgan.design.service").append(i % 50)
+			.append(".endpoint")
+			.append(i % 20)
+			.append(".setting")
+			.append(i)
+			.toString();
+	}
+
+	private static String value(final int i) {
+		return new StringBuilder("value").append(i % 10000)
+			.toString();
+	}
+
+	private static long timeLookups(final Map<?, ?> map, final String[] keys) {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+			final long start = System.nanoTime();
+			int found = 0;
+			for (final String key : keys) {
+				if (null != map.get(key)) {
+					found++;
+				}
+			}
+			best = Math.min(best, System.nanoTime() - start + (found == keys.length ? 0 : 1));
+		}
+		return best;
+	}
+
+	private static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
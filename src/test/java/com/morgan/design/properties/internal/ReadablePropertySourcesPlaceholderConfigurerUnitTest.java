@@ -0,0 +1,609 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
+import com.morgan.design.properties.bean.PropertyModifiedEvent;
+import com.morgan.design.properties.exception.PropertyNotFoundException;
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.event.PropertyChangedEventNotifier;
+import com.morgan.design.properties.event.PropertyNamespaceListener;
+import com.morgan.design.properties.internal.PropertiesWatcher.WatchMode;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+import com.morgan.design.util.ChecksumUtils;
+
+public class ReadablePropertySourcesPlaceholderConfigurerUnitTest {
+
+	private final List<PropertyModifiedEvent> events = Lists.newArrayList();
+	private final List<PropertiesModifiedEvent> batches = Lists.newArrayList();
+
+	private File base;
+	private File overrides;
+	private ReadablePropertySourcesPlaceholderConfigurer configurer;
+
+	@Before
+	public void setUp() throws IOException {
+		this.base = File.createTempFile("base", ".properties");
+		this.overrides = File.createTempFile("overrides", ".properties");
+		Files.write("a=1\nb=2\nc=3\nshared=base", this.base, Charsets.ISO_8859_1);
+		Files.write("shared=override", this.overrides, Charsets.ISO_8859_1);
+
+		this.configurer = createConfigurer();
+		this.configurer.setLocations(new Resource[] { new FileSystemResource(this.base), new FileSystemResource(this.overrides) });
+		this.configurer.mergeProperties();
+	}
+
+	private ReadablePropertySourcesPlaceholderConfigurer createConfigurer() {
+		return new ReadablePropertySourcesPlaceholderConfigurer(new PropertyChangedEventNotifier() {
+			@Override
+			@SuppressWarnings("unqualified-field-access")
+			public void post(final PropertyModifiedEvent event) {
+				events.add(event);
+			}
+
+			@Override
+			@SuppressWarnings("unqualified-field-access")
+			public void post(final PropertiesModifiedEvent event) {
+				batches.add(event);
+			}
+
+			@Override
+			public void unregister(final ReloadablePropertyPostProcessor reloadablePropertyProcessor) {
+			}
+
+			@Override
+			public void register(final ReloadablePropertyPostProcessor reloadablePropertyProcessor) {
+			}
+		}, new SubstitutingPropertyResolver(), new DefaultPropertyConversionService());
+	}
+
+	@After
+	public void tearDown() {
+		this.base.delete();
+		this.overrides.delete();
+	}
+
+	@Test
+	public void shouldOnlyPostEventsForAddedRemovedAndModifiedKeys() throws IOException {
+		Files.write("a=1\nb=20\nd=4\nshared=base", this.base, Charsets.ISO_8859_1);
+
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.events, containsInAnyOrder(new PropertyModifiedEvent("b", "2", "20", 2), new PropertyModifiedEvent("c", "3", null, 2),
+				new PropertyModifiedEvent("d", null, "4", 2)));
+		assertThat(this.configurer.getProperties().getProperty("c"), is(nullValue()));
+		assertThat(this.configurer.getProperties().getProperty("d"), is("4"));
+	}
+
+	@Test
+	public void shouldNotOverwriteValueOfHigherPrecedenceLocation() throws IOException {
+		Files.write("a=1\nb=2\nc=3\nshared=changed", this.base, Charsets.ISO_8859_1);
+
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.events.isEmpty(), is(true));
+		assertThat(this.configurer.getProperty("shared"), is("override"));
+	}
+
+	@Test
+	public void shouldFallBackToLowerPrecedenceLocationOnceKeyRemoved() throws IOException {
+		Files.write("", this.overrides, Charsets.ISO_8859_1);
+
+		this.configurer.onResourceChanged(new FileSystemResource(this.overrides));
+
+		assertThat(this.events, is((List<PropertyModifiedEvent>) Lists.newArrayList(new PropertyModifiedEvent("shared", "override", "base", 2))));
+	}
+
+	@Test
+	public void shouldSkipDiscoveredResourceWhichCannotBeLoaded() throws IOException {
+		final File directory = Files.createTempDir();
+		Files.write("discovered=yes", new File(directory, "good.properties"), Charsets.ISO_8859_1);
+		// Matches the pattern and exists, but cannot be read
+		new File(directory, "unreadable.properties").mkdir();
+		try {
+			final ReadablePropertySourcesPlaceholderConfigurer discovering = createConfigurer();
+			discovering.setLocations(new Resource[] { new FileSystemResource(this.base) });
+			discovering.setDiscoveryLocations(new String[] { "file:" + directory.getAbsolutePath() + "/*.properties" });
+			discovering.mergeProperties();
+
+			assertThat(discovering.getProperty("discovered"), is("yes"));
+			assertThat(discovering.getProperty("a"), is("1"));
+		}
+		finally {
+			new File(directory, "good.properties").delete();
+			new File(directory, "unreadable.properties").delete();
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void shouldLoadLocationCreatedAfterStartup() throws IOException {
+		this.base.delete();
+		final ReadablePropertySourcesPlaceholderConfigurer missingBase = createConfigurer();
+		missingBase.setLocations(new Resource[] { new FileSystemResource(this.base), new FileSystemResource(this.overrides) });
+		missingBase.setIgnoreResourceNotFound(true);
+		missingBase.mergeProperties();
+		assertThat(missingBase.getPropertySnapshot()
+			.containsProperty("a"), is(false));
+
+		Files.write("a=1\nshared=base", this.base, Charsets.ISO_8859_1);
+		assertThat(missingBase.reload(new FileSystemResource(this.base)), is(true));
+
+		// Declared before the overrides location, it still ranks below it
+		assertThat(missingBase.getProperty("a"), is("1"));
+		assertThat(missingBase.getProperty("shared"), is("override"));
+		assertThat(this.events, is((List<PropertyModifiedEvent>) Lists.newArrayList(new PropertyModifiedEvent("a", null, "1", 2))));
+	}
+
+	@Test
+	public void shouldReplaceRuntimeOverrideOnceResourceReloaded() throws IOException {
+		this.configurer.setProperty("a", "runtime");
+		this.configurer.setProperty("b", "runtime");
+		this.configurer.setProperty("shared", "runtime");
+		this.events.clear();
+
+		Files.write("a=1\nb=20\nshared=changed", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		// a is unchanged and shared is still defined by the higher precedence overrides file, only b is redefined
+		assertThat(this.configurer.getProperty("a"), is("runtime"));
+		assertThat(this.configurer.getProperty("b"), is("20"));
+		assertThat(this.configurer.getProperty("shared"), is("runtime"));
+		assertThat(this.events, containsInAnyOrder(new PropertyModifiedEvent("b", "runtime", "20", 5), new PropertyModifiedEvent("c", "3", null, 5)));
+	}
+
+	@Test
+	public void shouldFallBackToResourceValueOnceRuntimeOverrideCleared() {
+		this.configurer.setProperty("shared", "runtime");
+		this.events.clear();
+
+		this.configurer.clearProperty("shared");
+		this.configurer.clearProperty("a");
+
+		assertThat(this.configurer.getProperty("shared"), is("override"));
+		assertThat(this.events, is((List<PropertyModifiedEvent>) Lists.newArrayList(new PropertyModifiedEvent("shared", "runtime", "override", 3))));
+	}
+
+	@Test
+	public void shouldLeaveEarlierSnapshotUnchangedOnceReplaced() throws IOException {
+		final PropertySnapshot before = this.configurer.getPropertySnapshot();
+
+		Files.write("a=10\nb=20\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(before.getProperty("a"), is("1"));
+		assertThat(before.getProperty("b"), is("2"));
+		assertThat(before.getProperty("c"), is("3"));
+		assertThat(this.configurer.getPropertySnapshot().getProperty("a"), is("10"));
+		assertThat(this.configurer.getPropertySnapshot().getProperty("b"), is("20"));
+		assertThat(this.configurer.getPropertySnapshot().containsProperty("c"), is(false));
+		assertThat(before.getGeneration(), is(1L));
+		assertThat(this.configurer.getGeneration(), is(2L));
+	}
+
+	@Test
+	public void shouldNotExposePropertySnapshotAsMBeanAttribute() throws NotCompliantMBeanException {
+		final MBeanInfo info = new StandardMBean(this.configurer, PropertyAccessorMXBean.class, true).getMBeanInfo();
+
+		for (final MBeanAttributeInfo attribute : info.getAttributes()) {
+			assertThat(attribute.getName(), is(not("PropertySnapshot")));
+		}
+	}
+
+	@Test
+	public void shouldSetBatchOfPropertiesInSingleGeneration() {
+		this.configurer.setProperties(ImmutableMap.of("a", "10", "b", "20", "c", "3"));
+
+		assertThat(this.configurer.getGeneration(), is(2L));
+		assertThat(this.configurer.getProperty("a"), is("10"));
+		assertThat(this.configurer.getProperty("b"), is("20"));
+		assertThat(this.batches.size(), is(1));
+		assertThat(this.batches.get(0)
+			.getModifications(), containsInAnyOrder(new PropertyModifiedEvent("a", "1", "10", 2), new PropertyModifiedEvent("b", "2", "20", 2)));
+		// Listeners of single properties still see each modification
+		assertThat(this.events, containsInAnyOrder(new PropertyModifiedEvent("a", "1", "10", 2), new PropertyModifiedEvent("b", "2", "20", 2)));
+	}
+
+	@Test
+	public void shouldNotSetAnyPropertyOfBatchRejectedByValidator() {
+		final List<PropertyModifiedEvent> validated = Lists.newArrayList();
+		this.configurer.addChangeValidator(new PropertyChangeValidator() {
+			@Override
+			public void validate(final PropertySnapshot candidate, final List<PropertyModifiedEvent> modifications) {
+				validated.addAll(modifications);
+				if ("invalid".equals(candidate.resolveProperty("b"))) {
+					throw new IllegalArgumentException("b");
+				}
+			}
+		});
+
+		try {
+			this.configurer.setProperties(ImmutableMap.of("a", "10", "b", "invalid"));
+			fail("Should have thrown IllegalArgumentException rejecting the batch");
+		}
+		catch (final IllegalArgumentException e) {
+			assertThat(validated, containsInAnyOrder(new PropertyModifiedEvent("a", "1", "10", 2), new PropertyModifiedEvent("b", "2", "invalid", 2)));
+			assertThat(this.configurer.getProperty("a"), is("1"));
+			assertThat(this.configurer.getGeneration(), is(1L));
+			assertThat(this.batches.isEmpty(), is(true));
+			assertThat(this.events.isEmpty(), is(true));
+		}
+
+		// The rejected values were not kept as runtime overrides
+		this.configurer.setProperty("c", "30");
+		assertThat(this.configurer.getProperty("b"), is("2"));
+	}
+
+	@Test
+	public void shouldNotSetAnyPropertyOfBatchContainingUnknownProperty() {
+		try {
+			this.configurer.setProperties(ImmutableMap.of("a", "10", "unknown", "20"));
+			fail("Should have thrown PropertyNotFoundException due to unknown property");
+		}
+		catch (final PropertyNotFoundException e) {
+			assertThat(this.configurer.getProperty("a"), is("1"));
+			assertThat(this.configurer.getGeneration(), is(1L));
+			assertThat(this.batches.isEmpty(), is(true));
+		}
+	}
+
+	@Test
+	public void shouldRejectReloadIntroducingReferenceCycle() throws IOException {
+		Files.write("a=${b}\nb=${a}\nc=3\nshared=base", this.base, Charsets.ISO_8859_1);
+
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.configurer.getProperty("a"), is("1"));
+		assertThat(this.configurer.getGeneration(), is(1L));
+		assertThat(this.events.isEmpty(), is(true));
+
+		// The rejected keys are not remembered, the next valid reload is diffed against the last applied one
+		Files.write("a=${c}\nb=2\nc=3\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.configurer.resolveProperty("a"), is((Object) "3"));
+		assertThat(this.events, is((List<PropertyModifiedEvent>) Lists.newArrayList(new PropertyModifiedEvent("a", "1", "${c}", 2))));
+	}
+
+	@Test
+	public void shouldPostEventsForPropertiesReferringToChangedProperty() throws IOException {
+		Files.write("a=1\nb=${a}\nc=${b}\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+		this.events.clear();
+
+		Files.write("a=5\nb=${a}\nc=${b}\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.events, containsInAnyOrder(new PropertyModifiedEvent("a", "1", "5", 3), new PropertyModifiedEvent("b", "1", "5", 3),
+				new PropertyModifiedEvent("c", "1", "5", 3)));
+		assertThat(this.configurer.resolveProperty("c"), is((Object) "5"));
+	}
+
+	@Test
+	public void shouldPostRemovalForPropertyReferringToRemovedProperty() throws IOException {
+		Files.write("a=1\nb=${a}\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+		this.events.clear();
+
+		Files.write("b=${a}\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.events, containsInAnyOrder(new PropertyModifiedEvent("a", "1", null, 3), new PropertyModifiedEvent("b", "1", null, 3)));
+	}
+
+	@Test
+	public void shouldFindPropertiesWithPrefixOfCurrentGeneration() throws IOException {
+		Files.write("service.payments.url=http\nservice.payments.retry=3\nservice.paymentsx=1\nservice.orders.url=ftp\nshared=base", this.base,
+				Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+		this.configurer.setProperty("service.payments.retry", "5");
+
+		assertThat(this.configurer.getPropertiesWithPrefix("service.payments."),
+				is((Map<String, String>) ImmutableMap.of("service.payments.retry", "5", "service.payments.url", "http")));
+		assertThat(this.configurer.getPropertiesWithPrefix("service.")
+			.keySet(), contains("service.orders.url", "service.payments.retry", "service.payments.url", "service.paymentsx"));
+		assertThat(this.configurer.getPropertiesWithPrefix("missing.")
+			.isEmpty(), is(true));
+		assertThat(this.configurer.getPropertiesWithPrefix("a")
+			.isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldNotifyNamespaceListenerOncePerGenerationWithItsPropertiesOnly() throws IOException {
+		final List<PropertiesModifiedEvent> namespaceEvents = Lists.newArrayList();
+		this.configurer.subscribe("service.payments", new PropertyNamespaceListener() {
+			@Override
+			public void onNamespaceModified(final String namespace, final PropertiesModifiedEvent event) {
+				namespaceEvents.add(event);
+			}
+		});
+
+		Files.write("service.payments.url=http\nservice.payments.retry=3\nservice.paymentsx=1\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(namespaceEvents.size(), is(1));
+		assertThat(namespaceEvents.get(0)
+			.getGeneration(), is(2L));
+		assertThat(namespaceEvents.get(0)
+			.getModifications(), containsInAnyOrder(new PropertyModifiedEvent("service.payments.url", null, "http", 2),
+				new PropertyModifiedEvent("service.payments.retry", null, "3", 2)));
+	}
+
+	@Test
+	public void shouldOrderLayersRegardlessOfReloadOrder() throws IOException {
+		final File defaults = File.createTempFile("defaults", ".properties");
+		final File host = File.createTempFile("host", ".properties");
+		try {
+			Files.write("a=default\nb=default\nd=default", defaults, Charsets.ISO_8859_1);
+			Files.write("a=host", host, Charsets.ISO_8859_1);
+			this.configurer.setDefaultLocations(new Resource[] { new FileSystemResource(defaults) });
+			this.configurer.setHostOverrideLocations(new Resource[] { new FileSystemResource(host) });
+			this.configurer.mergeProperties();
+
+			assertThat(this.configurer.getProperty("a"), is("host"));
+			assertThat(this.configurer.getProperty("b"), is("2"));
+			assertThat(this.configurer.getProperty("d"), is("default"));
+
+			Files.write("a=changed\nb=changed\nd=changed", defaults, Charsets.ISO_8859_1);
+			this.configurer.onResourceChanged(new FileSystemResource(defaults));
+
+			assertThat(this.events, is((List<PropertyModifiedEvent>) Lists.newArrayList(new PropertyModifiedEvent("d", "default", "changed", 2))));
+
+			Files.write("", host, Charsets.ISO_8859_1);
+			this.configurer.onResourceChanged(new FileSystemResource(host));
+
+			assertThat(this.configurer.getProperty("a"), is("1"));
+		}
+		finally {
+			defaults.delete();
+			host.delete();
+		}
+	}
+
+	@Test
+	public void shouldStartWithLastKnownGoodPropertiesAndReconcileInBackground() throws IOException, InterruptedException {
+		final File lastKnownGood = File.createTempFile("lastKnownGood", ".bin");
+		lastKnownGood.delete();
+		try {
+			this.configurer.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			this.configurer.mergeProperties();
+			this.configurer.setProperty("b", "runtime");
+			// The snapshot is written in the background, closing waits for the write
+			this.configurer.destroy();
+			assertThat(lastKnownGood.exists(), is(true));
+
+			Files.write("a=10\nb=2\nshared=base", this.base, Charsets.ISO_8859_1);
+			final ReadablePropertySourcesPlaceholderConfigurer restarted = createConfigurer();
+			restarted.setLocations(new Resource[] { new FileSystemResource(this.base), new FileSystemResource(this.overrides) });
+			restarted.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			restarted.mergeProperties();
+
+			// Either still the last known good properties or already reconciled
+			assertThat(restarted.getProperty("shared"), is("override"));
+			for (int i = 0; i < 100 && restarted.getGeneration() == 1; i++) {
+				Thread.sleep(50);
+			}
+
+			assertThat(restarted.getProperty("a"), is("10"));
+			assertThat(restarted.getProperty("b"), is("2"));
+			assertThat(restarted.getPropertySnapshot()
+				.containsProperty("c"), is(false));
+			assertThat(restarted.getGeneration(), is(2L));
+		}
+		finally {
+			lastKnownGood.delete();
+		}
+	}
+
+	@Test
+	public void shouldKeepLocalPropertiesWhenReconcilingLastKnownGoodProperties() throws IOException {
+		final File lastKnownGood = File.createTempFile("lastKnownGood", ".bin");
+		lastKnownGood.delete();
+		try {
+			for (final boolean localOverride : new boolean[] { false, true }) {
+				final Properties local = new Properties();
+				local.setProperty("local", "only");
+				local.setProperty("shared", "local");
+				this.configurer.setProperties(local);
+				this.configurer.setLocalOverride(localOverride);
+				this.configurer.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+				this.configurer.mergeProperties();
+				this.configurer.destroy();
+
+				final ReadablePropertySourcesPlaceholderConfigurer restarted = createConfigurer();
+				restarted.setLocations(new Resource[] { new FileSystemResource(this.base), new FileSystemResource(this.overrides) });
+				restarted.setProperties(local);
+				restarted.setLocalOverride(localOverride);
+				restarted.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+				restarted.mergeProperties();
+				restarted.reconcile();
+
+				assertThat(restarted.getProperty("local"), is("only"));
+				assertThat(restarted.getProperty("shared"), is(localOverride ? "local" : "override"));
+				assertThat(restarted.getProperty("a"), is("1"));
+			}
+		}
+		finally {
+			lastKnownGood.delete();
+		}
+	}
+
+	@Test
+	public void shouldFallBackToLocalPropertyOnceKeyRemovedFromResources() throws IOException {
+		final Properties local = new Properties();
+		local.setProperty("shared", "local");
+		this.configurer.setProperties(local);
+		this.configurer.mergeProperties();
+		assertThat(this.configurer.getProperty("shared"), is("override"));
+
+		Files.write("", this.overrides, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.overrides));
+		Files.write("a=1\nb=2\nc=3", this.base, Charsets.ISO_8859_1);
+		this.configurer.onResourceChanged(new FileSystemResource(this.base));
+
+		assertThat(this.configurer.getProperty("shared"), is("local"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectPollingDelaysWhichAreNotNumbers() {
+		this.configurer.setPollingDelays(ImmutableMap.of("file:/mnt/nfs/**", "5s,5m"));
+	}
+
+	@Test
+	public void shouldReloadResourceChangedBeforeWatchRegistered() throws IOException, InterruptedException {
+		Files.write("a=10\nb=2\nc=3\nshared=base", this.base, Charsets.ISO_8859_1);
+		this.configurer.setWatchMode(WatchMode.POLLING);
+		this.configurer.setPollingMinDelay(60000);
+		this.configurer.setDebounceQuietPeriod(0);
+		try {
+			this.configurer.startWatching();
+			for (int i = 0; i < 100 && this.configurer.getGeneration() == 1; i++) {
+				Thread.sleep(50);
+			}
+
+			assertThat(this.configurer.getProperty("a"), is("10"));
+			assertThat(this.configurer.getGeneration(), is(2L));
+		}
+		finally {
+			this.configurer.destroy();
+		}
+	}
+
+	@Test
+	public void shouldKeepLastKnownGoodPropertiesWhileSourcesMissing() throws IOException {
+		final File lastKnownGood = File.createTempFile("lastKnownGood", ".bin");
+		lastKnownGood.delete();
+		try {
+			this.configurer.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			this.configurer.mergeProperties();
+			this.configurer.destroy();
+
+			final ReadablePropertySourcesPlaceholderConfigurer restarted = createConfigurer();
+			restarted.setLocations(new Resource[] { new FileSystemResource(new File(this.base.getParentFile(), "missing.properties")) });
+			restarted.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			restarted.mergeProperties();
+			restarted.reconcile();
+
+			assertThat(restarted.getProperty("a"), is("1"));
+			assertThat(restarted.getProperty("shared"), is("override"));
+		}
+		finally {
+			lastKnownGood.delete();
+		}
+	}
+
+	@Test
+	public void shouldReuseUnchangedSourcesOfPrecompiledSnapshot() throws IOException, InterruptedException {
+		final File precompiled = File.createTempFile("precompiled", ".bin");
+		try {
+			Files.write("a=1\nb=${a}\nshared=base", this.base, Charsets.ISO_8859_1);
+			this.configurer.mergeProperties();
+			final PropertySnapshotFile compiled = this.configurer.compileSnapshot();
+			// Entries of the unchanged overrides differ from its content, showing they are taken from the file rather than parsed
+			final FileSystemResource overridesResource = new FileSystemResource(this.overrides);
+			compiled.put(overridesResource.getURI()
+				.toString(), ChecksumUtils.crc32(overridesResource), ImmutableMap.of("shared", "precompiled"));
+			compiled.write(precompiled);
+
+			Files.write("a=10\nb=${a}\nshared=base", this.base, Charsets.ISO_8859_1);
+			final ReadablePropertySourcesPlaceholderConfigurer restarted = createConfigurer();
+			restarted.setLocations(new Resource[] { new FileSystemResource(this.base), overridesResource });
+			restarted.setPrecompiledSnapshot(new FileSystemResource(precompiled));
+			restarted.mergeProperties();
+
+			assertThat(restarted.getProperty("shared"), is("precompiled"));
+			assertThat(restarted.resolveProperty("b"), is((Object) "10"));
+
+			// The outdated file is rewritten in the background with the parsed base
+			final long checksum = ChecksumUtils.crc32(new FileSystemResource(this.base));
+			final String baseUri = new FileSystemResource(this.base).getURI()
+				.toString();
+			Map<String, String> rewritten = null;
+			for (int i = 0; i < 100 && null == rewritten; i++) {
+				Thread.sleep(50);
+				rewritten = PropertySnapshotFile.read(precompiled)
+					.getSource(baseUri, checksum);
+			}
+			assertThat(rewritten, is((Map<String, String>) ImmutableMap.of("a", "10", "b", "${a}", "shared", "base")));
+		}
+		finally {
+			precompiled.delete();
+		}
+	}
+
+	@Test
+	public void shouldKeepLastKnownGoodKeysOfLocationMissingWhenReconcilingUntilItAppears() throws IOException {
+		final File lastKnownGood = File.createTempFile("lastKnownGood", ".bin");
+		lastKnownGood.delete();
+		try {
+			this.configurer.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			this.configurer.mergeProperties();
+			this.configurer.destroy();
+			final byte[] stored = Files.toByteArray(lastKnownGood);
+
+			this.base.delete();
+			this.events.clear();
+			final ReadablePropertySourcesPlaceholderConfigurer restarted = createConfigurer();
+			restarted.setLocations(new Resource[] { new FileSystemResource(this.base), new FileSystemResource(this.overrides) });
+			restarted.setIgnoreResourceNotFound(true);
+			restarted.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			restarted.mergeProperties();
+			restarted.reconcile();
+			restarted.setProperty("shared", "runtime");
+
+			assertThat(restarted.getProperty("a"), is("1"));
+			assertThat(this.events, contains(new PropertyModifiedEvent("shared", "override", "runtime", 2)));
+			// Not replaced while the location is missing
+			restarted.destroy();
+			assertThat(Files.toByteArray(lastKnownGood), is(stored));
+
+			// Held again on the next start, then picked up once it appears
+			final ReadablePropertySourcesPlaceholderConfigurer reloaded = createConfigurer();
+			reloaded.setLocations(new Resource[] { new FileSystemResource(this.base), new FileSystemResource(this.overrides) });
+			reloaded.setIgnoreResourceNotFound(true);
+			reloaded.setLastKnownGoodSnapshot(new FileSystemResource(lastKnownGood));
+			reloaded.mergeProperties();
+			reloaded.reconcile();
+			Files.write("a=5\nb=2\nc=3\nshared=base", this.base, Charsets.ISO_8859_1);
+			this.events.clear();
+
+			reloaded.onResourceChanged(new FileSystemResource(this.base));
+
+			assertThat(this.events, contains(new PropertyModifiedEvent("a", "1", "5", 2)));
+			reloaded.destroy();
+			assertThat(new LastKnownGoodSnapshotStore(lastKnownGood).load()
+				.getProperties()
+				.get("a"), is("5"));
+		}
+		finally {
+			lastKnownGood.delete();
+		}
+	}
+}
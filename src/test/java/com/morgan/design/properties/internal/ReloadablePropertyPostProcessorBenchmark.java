@@ -0,0 +1,88 @@
+package com.morgan.design.properties.internal;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Properties;
+
+import org.springframework.util.ReflectionUtils;
+
+import com.morgan.design.properties.ReloadableProperty;
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+/**
+ * Measures the per bean cost of {@link ReloadablePropertyPostProcessor#postProcessAfterInstantiation(Object, String)} for prototype style beans created
+ * over and over, compared with the full reflective field scan every bean used to cost. Run with an optional bean count argument (default 1000000).
+ */
+public class ReloadablePropertyPostProcessorBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	public static void main(final String[] args) throws IOException {
+		final int beanCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		final ReadablePropertySourcesPlaceholderConfigurer configurer = new ReadablePropertySourcesPlaceholderConfigurer(null,
+				new SubstitutingPropertyResolver(), new DefaultPropertyConversionService());
+		final Properties properties = new Properties();
+		properties.setProperty("benchmark.value", "42");
+		configurer.setProperties(properties);
+		configurer.mergeProperties();
+		final ReloadablePropertyPostProcessor processor = new ReloadablePropertyPostProcessor(configurer, null, new DefaultPropertyConversionService());
+
+		for (int round = 0; round < ROUNDS; round++) {
+			final long scan = time(beanCount, new Runnable() {
+				@Override
+				public void run() {
+					ReflectionUtils.doWithFields(UnannotatedBean.class, new ReflectionUtils.FieldCallback() {
+						@Override
+						public void doWith(final Field field) {
+							field.getAnnotation(ReloadableProperty.class);
+						}
+					});
+				}
+			});
+			final long unannotated = time(beanCount, new Runnable() {
+				@Override
+				public void run() {
+					processor.postProcessAfterInstantiation(new UnannotatedBean(), "unannotated");
+				}
+			});
+			final long annotated = time(beanCount / 100, new Runnable() {
+				@Override
+				public void run() {
+					processor.postProcessAfterInstantiation(new AnnotatedBean(), "annotated");
+				}
+			});
+			System.out.println(String.format("Round %d: reflective scan %,d ns, unannotated bean %,d ns, annotated bean %,d ns per bean", round + 1,
+					scan / beanCount, unannotated / beanCount, annotated / (beanCount / 100)));
+		}
+	}
+
+	private static long time(final int count, final Runnable task) {
+		final long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			task.run();
+		}
+		return System.nanoTime() - start;
+	}
+
+	static class BaseBean {
+		protected String name = "base";
+		protected long created = System.nanoTime();
+		protected Object lock = new Object();
+	}
+
+	static class UnannotatedBean extends BaseBean {
+		private int first;
+		private int second;
+		private String third;
+		private String fourth;
+		private Object fifth;
+	}
+
+	static class AnnotatedBean extends BaseBean {
+		@ReloadableProperty("benchmark.value")
+		private int value;
+		private String other;
+	}
+}
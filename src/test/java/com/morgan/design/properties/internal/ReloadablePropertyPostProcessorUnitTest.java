@@ -0,0 +1,284 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
+import com.morgan.design.properties.ReloadableProperty;
+import com.morgan.design.properties.bean.PropertiesModifiedEvent;
+import com.morgan.design.properties.bean.PropertyModifiedEvent;
+import com.morgan.design.properties.conversion.DefaultPropertyConversionService;
+import com.morgan.design.properties.conversion.PropertyConversionService;
+import com.morgan.design.properties.event.GuavaPropertyChangedEventNotifier;
+import com.morgan.design.properties.resolver.SubstitutingPropertyResolver;
+
+public class ReloadablePropertyPostProcessorUnitTest {
+
+	private CountingConversionService conversionService;
+	private ReadablePropertySourcesPlaceholderConfigurer configurer;
+	private ReloadablePropertyPostProcessor processor;
+
+	@Before
+	public void setUp() throws IOException {
+		this.conversionService = new CountingConversionService();
+		this.configurer = new ReadablePropertySourcesPlaceholderConfigurer(null, new SubstitutingPropertyResolver(), this.conversionService);
+		loadProperties("1", "a,b");
+		this.processor = new ReloadablePropertyPostProcessor(this.configurer, null, this.conversionService);
+	}
+
+	@Test
+	public void shouldConvertOncePerFieldTypeOnReload() throws IOException {
+		final LongBean[] longBeans = { new LongBean(), new LongBean(), new LongBean() };
+		final StringBean[] stringBeans = { new StringBean(), new StringBean() };
+		for (final Object bean : longBeans) {
+			this.processor.postProcessAfterInstantiation(bean, "long");
+		}
+		for (final Object bean : stringBeans) {
+			this.processor.postProcessAfterInstantiation(bean, "string");
+		}
+
+		loadProperties("2", "a,b");
+		this.conversionService.conversions = 0;
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.value", "1", "2"));
+
+		assertThat(this.conversionService.conversions, is(2));
+		assertThat(this.configurer.getSavedConversionCount(), is(3L));
+		for (final LongBean bean : longBeans) {
+			assertThat(bean.value, is(2L));
+		}
+		for (final StringBean bean : stringBeans) {
+			assertThat(bean.value, is("2"));
+		}
+	}
+
+	@Test
+	public void shouldConvertOncePerFieldTypeForEachModificationOfABatch() throws IOException {
+		final LongBean first = new LongBean();
+		final LongBean second = new LongBean();
+		this.processor.postProcessAfterInstantiation(first, "first");
+		this.processor.postProcessAfterInstantiation(second, "second");
+
+		loadProperties("3", "c");
+		this.conversionService.conversions = 0;
+		this.processor.handlePropertiesChange(new PropertiesModifiedEvent(ImmutableList.of(new PropertyModifiedEvent("shared.value", "1", "3"),
+				new PropertyModifiedEvent("shared.list", "a,b", "c")), 2));
+
+		assertThat(this.conversionService.conversions, is(3));
+		assertThat(this.configurer.getSavedConversionCount(), is(1L));
+		assertThat(first.value, is(3L));
+		assertThat(second.value, is(3L));
+		assertThat(first.values, is(new String[] { "c" }));
+		assertThat(second.values, is(new String[] { "c" }));
+	}
+
+	@Test
+	public void shouldNotShareMutableValuesBetweenFields() throws IOException {
+		final LongBean first = new LongBean();
+		final LongBean second = new LongBean();
+		this.processor.postProcessAfterInstantiation(first, "first");
+		this.processor.postProcessAfterInstantiation(second, "second");
+
+		loadProperties("1", "d");
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.list", "a,b", "d"));
+
+		assertThat(first.values, is(new String[] { "d" }));
+		assertThat(first.values, is(not(sameInstance(second.values))));
+		assertThat(this.configurer.getSavedConversionCount(), is(0L));
+	}
+
+	@Test
+	public void shouldNotShareValuesOfMutableTypeBetweenFields() throws IOException {
+		final DateBean first = new DateBean();
+		final DateBean second = new DateBean();
+		this.processor.postProcessAfterInstantiation(first, "first");
+		this.processor.postProcessAfterInstantiation(second, "second");
+
+		final Properties properties = new Properties();
+		properties.setProperty("shared.date", "#{ new java.util.Date(1000L) }");
+		this.configurer.setProperties(properties);
+		this.configurer.mergeProperties();
+		this.conversionService.conversions = 0;
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.date", "#{ new java.util.Date(0L) }", "#{ new java.util.Date(1000L) }"));
+
+		assertThat(first.value, is(new Date(1000)));
+		assertThat(first.value, is(not(sameInstance(second.value))));
+		assertThat(this.conversionService.conversions, is(2));
+		assertThat(this.configurer.getSavedConversionCount(), is(0L));
+	}
+
+	@Test
+	public void shouldRevertEveryFieldToItsOwnDefaultWhenPropertyRemoved() throws IOException {
+		final StringBean first = new StringBean();
+		final StringBean second = new StringBean();
+		second.value = "second default";
+		this.processor.postProcessAfterInstantiation(first, "first");
+		this.processor.postProcessAfterInstantiation(second, "second");
+
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.value", "1", null));
+
+		assertThat(first.value, is("default"));
+		assertThat(second.value, is("second default"));
+		assertThat(this.configurer.getSavedConversionCount(), is(0L));
+	}
+
+	@Test
+	public void shouldNotOverwriteValueWithOneOfAnEarlierGeneration() throws IOException {
+		final LongBean bean = new LongBean();
+		this.processor.postProcessAfterInstantiation(bean, "bean");
+
+		loadProperties("4", "a,b");
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.value", "1", "4", 1));
+		assertThat(bean.value, is(1L));
+
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.value", "1", "4", 2));
+		assertThat(bean.value, is(4L));
+	}
+
+	@Test
+	public void shouldUpdateBeansCreatedConcurrently() throws Exception {
+		final int threadCount = 4;
+		final int beansPerThread = 500;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<List<LongBean>>> creators = Lists.newArrayList();
+		for (int thread = 0; thread < threadCount; thread++) {
+			creators.add(executor.submit(new Callable<List<LongBean>>() {
+				@Override
+				public List<LongBean> call() {
+					final List<LongBean> beans = Lists.newArrayList();
+					for (int i = 0; i < beansPerThread; i++) {
+						final LongBean bean = new LongBean();
+						ReloadablePropertyPostProcessorUnitTest.this.processor.postProcessAfterInstantiation(bean, "bean");
+						beans.add(bean);
+					}
+					return beans;
+				}
+			}));
+		}
+		final List<LongBean> beans = Lists.newArrayList();
+		for (final Future<List<LongBean>> creator : creators) {
+			beans.addAll(creator.get());
+		}
+		executor.shutdown();
+
+		loadProperties("5", "a,b");
+		this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.value", "1", "5"));
+
+		assertThat(beans.size(), is(threadCount * beansPerThread));
+		for (final LongBean bean : beans) {
+			assertThat(bean.value, is(5L));
+		}
+	}
+
+	@Test
+	public void shouldUnsubscribeFieldsOfCollectedBeans() throws Exception {
+		final LongBean kept = new LongBean();
+		this.processor.postProcessAfterInstantiation(kept, "kept");
+		for (int i = 0; i < 100; i++) {
+			this.processor.postProcessAfterInstantiation(new LongBean(), "dropped");
+		}
+		assertThat(this.configurer.getLiveBindingCount(), is(202L));
+
+		loadProperties("7", "a,b");
+		for (int attempt = 0; attempt < 50 && this.configurer.getLiveBindingCount() > 2; attempt++) {
+			System.gc();
+			Thread.sleep(20);
+			this.processor.handlePropertyChange(new PropertyModifiedEvent("shared.value", "1", "7"));
+		}
+
+		assertThat(this.configurer.getLiveBindingCount(), is(2L));
+		assertThat(kept.value, is(7L));
+	}
+
+	@Test
+	public void shouldRejectBatchWithValueFailingConversionBeforePublishingIt() throws IOException {
+		final GuavaPropertyChangedEventNotifier eventNotifier = new GuavaPropertyChangedEventNotifier(new EventBus());
+		this.configurer = new ReadablePropertySourcesPlaceholderConfigurer(eventNotifier, new SubstitutingPropertyResolver(), this.conversionService);
+		loadProperties("1", "a,b");
+		this.processor = new ReloadablePropertyPostProcessor(this.configurer, eventNotifier, this.conversionService);
+		this.processor.registerPropertyReloader();
+		try {
+			final LongBean bean = new LongBean();
+			this.processor.postProcessAfterInstantiation(bean, "bean");
+
+			try {
+				this.configurer.setProperties(ImmutableMap.of("shared.list", "c", "shared.value", "not a number"));
+				fail("Should have thrown BeanInitializationException due to bad value for conversion");
+			}
+			catch (final BeanInitializationException e) {
+				assertThat(this.configurer.getProperty("shared.value"), is("1"));
+				assertThat(this.configurer.getGeneration(), is(1L));
+				assertThat(bean.value, is(1L));
+				assertThat(bean.values, is(new String[] { "a,b" }));
+			}
+
+			// Values converted once when validated, the events of single properties posted after the batch are skipped
+			this.conversionService.conversions = 0;
+			this.configurer.setProperties(ImmutableMap.of("shared.list", "c", "shared.value", "2"));
+
+			assertThat(bean.value, is(2L));
+			assertThat(bean.values, is(new String[] { "c" }));
+			assertThat(this.conversionService.conversions, is(2));
+		}
+		finally {
+			this.processor.unregisterPropertyReloader();
+			this.configurer.destroy();
+		}
+	}
+
+	private void loadProperties(final String value, final String list) throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty("shared.value", value);
+		properties.setProperty("shared.list", list);
+		this.configurer.setProperties(properties);
+		this.configurer.mergeProperties();
+	}
+
+	private static class CountingConversionService implements PropertyConversionService {
+
+		private final PropertyConversionService delegate = new DefaultPropertyConversionService();
+		private int conversions;
+
+		@Override
+		public Object convertPropertyForField(final Class<?> type, final String property) throws Throwable {
+			this.conversions++;
+			return this.delegate.convertPropertyForField(type, property);
+		}
+	}
+
+	static class LongBean {
+		@ReloadableProperty("shared.value")
+		private long value;
+
+		@ReloadableProperty("shared.list")
+		private String[] values;
+	}
+
+	static class DateBean {
+		@ReloadableProperty("shared.date")
+		private Date value = new Date(0);
+	}
+
+	static class StringBean {
+		@ReloadableProperty("shared.value")
+		private String value = "default";
+	}
+}
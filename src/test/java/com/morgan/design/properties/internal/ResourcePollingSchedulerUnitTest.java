@@ -0,0 +1,133 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.morgan.design.properties.internal.PropertiesWatcher.EventPublisher;
+
+public class ResourcePollingSchedulerUnitTest {
+
+	private ResourcePollingScheduler scheduler;
+	private File file1;
+	private File file2;
+
+	@Before
+	public void setUp() throws IOException {
+		this.scheduler = new ResourcePollingScheduler(2, 100);
+		this.file1 = File.createTempFile("polling", ".properties");
+		this.file2 = File.createTempFile("polling", ".properties");
+	}
+
+	@After
+	public void tearDown() {
+		this.scheduler.shutdown();
+		this.file1.delete();
+		this.file2.delete();
+	}
+
+	@Test
+	public void shouldPublishChangesOfAllResourcesUsingSharedThreads() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(2);
+		final EventPublisher publisher = new EventPublisher() {
+			@Override
+			public void onResourceChanged(final Resource resource) {
+				latch.countDown();
+			}
+		};
+		this.scheduler.register(new FileSystemResource(this.file1), publisher);
+		this.scheduler.register(new FileSystemResource(this.file2), publisher);
+
+		Files.write("a=1", this.file1, Charsets.UTF_8);
+		Files.write("b=2", this.file2, Charsets.UTF_8);
+
+		assertThat(latch.await(2, TimeUnit.SECONDS), is(true));
+		assertThat(this.scheduler.getThreadCount(), is(2));
+		assertThat(this.scheduler.getResourceCount(), is(2));
+	}
+
+	@Test
+	public void shouldBackOffWhileIdleAndPollQuicklyAfterChange() throws Exception {
+		final ResourcePollingScheduler adaptiveScheduler = new ResourcePollingScheduler(1, 50, 400);
+		try {
+			final CountDownLatch latch = new CountDownLatch(1);
+			final Resource resource = new FileSystemResource(this.file1);
+			adaptiveScheduler.register(resource, new EventPublisher() {
+				@Override
+				public void onResourceChanged(final Resource changed) {
+					latch.countDown();
+				}
+			});
+
+			Thread.sleep(1500);
+			assertThat(adaptiveScheduler.getCurrentDelay(resource), is(400L));
+
+			Files.write("a=1", this.file1, Charsets.UTF_8);
+			assertThat(latch.await(2, TimeUnit.SECONDS), is(true));
+			Thread.sleep(20);
+			assertThat(adaptiveScheduler.getCurrentDelay(resource), is(50L));
+		} finally {
+			adaptiveScheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldPollResourcesMatchingPatternBetweenTheirOwnDelays() throws Exception {
+		final File slow = File.createTempFile("slow-", ".properties");
+		final ResourcePollingScheduler patternScheduler = new ResourcePollingScheduler(1, 50, 400, ImmutableMap.of("**/slow-*.properties",
+				new long[] { 200, 800 }));
+		try {
+			final EventPublisher publisher = new EventPublisher() {
+				@Override
+				public void onResourceChanged(final Resource changed) {
+				}
+			};
+			final Resource matching = new FileSystemResource(slow);
+			final Resource other = new FileSystemResource(this.file1);
+			patternScheduler.register(matching, publisher);
+			patternScheduler.register(other, publisher);
+
+			assertThat(patternScheduler.getCurrentDelay(matching), is(200L));
+			assertThat(patternScheduler.getCurrentDelay(other), is(50L));
+
+			Thread.sleep(2500);
+			assertThat(patternScheduler.getCurrentDelay(matching), is(800L));
+			assertThat(patternScheduler.getCurrentDelay(other), is(400L));
+		} finally {
+			patternScheduler.shutdown();
+			slow.delete();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectPatternWithoutDelay() {
+		new ResourcePollingScheduler(1, 50, 400, ImmutableMap.of("**/slow-*.properties", new long[0]));
+	}
+
+	@Test
+	public void shouldStopPollingOnceShutdown() throws Exception {
+		this.scheduler.register(new FileSystemResource(this.file1), new EventPublisher() {
+			@Override
+			public void onResourceChanged(final Resource resource) {
+			}
+		});
+
+		this.scheduler.shutdown();
+
+		assertThat(this.scheduler.isShutdown(), is(true));
+		assertThat(this.scheduler.getResourceCount(), is(0));
+	}
+}
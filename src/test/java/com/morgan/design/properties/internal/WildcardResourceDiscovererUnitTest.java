@@ -0,0 +1,85 @@
+package com.morgan.design.properties.internal;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.morgan.design.properties.internal.WildcardResourceDiscoverer.DiscoveryListener;
+
+public class WildcardResourceDiscovererUnitTest {
+
+	private final List<String> added = Lists.newArrayList();
+	private final List<String> removed = Lists.newArrayList();
+
+	private File directory;
+	private WildcardResourceDiscoverer discoverer;
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = Files.createTempDir();
+		Files.write("a=1", new File(this.directory, "first.properties"), Charsets.UTF_8);
+		Files.write("ignored", new File(this.directory, "first.txt"), Charsets.UTF_8);
+
+		this.discoverer = new WildcardResourceDiscoverer(new String[] { "file:" + this.directory.getAbsolutePath() + "/*.properties" },
+				new PathMatchingResourcePatternResolver(), new DiscoveryListener() {
+					@Override
+					@SuppressWarnings("unqualified-field-access")
+					public void onResourceAdded(final Resource resource) {
+						added.add(resource.getFilename());
+					}
+
+					@Override
+					@SuppressWarnings("unqualified-field-access")
+					public void onResourceRemoved(final Resource resource) {
+						removed.add(resource.getFilename());
+					}
+				});
+	}
+
+	@Test
+	public void shouldDiscoverMatchingResourcesWithoutNotifying() throws IOException {
+		final Resource[] resources = this.discoverer.discover();
+
+		assertThat(resources.length, is(1));
+		assertThat(resources[0].getFilename(), is("first.properties"));
+		assertThat(this.added.isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldNotifyAddedAndRemovedResources() throws IOException {
+		this.discoverer.discover();
+
+		Files.write("b=2", new File(this.directory, "second.properties"), Charsets.UTF_8);
+		new File(this.directory, "first.properties").delete();
+		this.discoverer.run();
+
+		assertThat(this.added, is((List<String>) Lists.newArrayList("second.properties")));
+		assertThat(this.removed, is((List<String>) Lists.newArrayList("first.properties")));
+
+		this.discoverer.run();
+		assertThat(this.added.size(), is(1));
+		assertThat(this.removed.size(), is(1));
+	}
+
+	@Test
+	public void shouldNotifyForgottenResourceAgain() throws IOException {
+		final Resource[] resources = this.discoverer.discover();
+
+		this.discoverer.forget(resources[0]);
+		this.discoverer.run();
+
+		assertThat(this.added, is((List<String>) Lists.newArrayList("first.properties")));
+		assertThat(this.removed.isEmpty(), is(true));
+	}
+}
@@ -0,0 +1,73 @@
+package com.morgan.design.properties.parser;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+public class PropertiesParserUnitTest {
+
+	private static final String CONTENT = "# comment\n" //
+		+ "! another comment\\\n" //
+		+ "simple=value\n" //
+		+ "   indented.key = spaced value  \n" //
+		+ "colon:separated\n" //
+		+ "whitespace separated\n" //
+		+ "whitespace.then.equals   =   value\n" //
+		+ "empty=\n" //
+		+ "no.value\n" //
+		+ "\n" //
+		+ "escaped\\ key\\=with\\:separators=escaped\\tvalue\\n\n" //
+		+ "unicode=caf\\u00e9 \\u2603\n" //
+		+ "continued=first \\\n" //
+		+ "          second \\\r\n" //
+		+ "\tthird\n" //
+		+ "continued.comment=start \\\n" //
+		+ "# not a comment\n" //
+		+ "double.backslash=ends with \\\\\n" //
+		+ "windows=line\r\n" //
+		+ "mac=line\r" //
+		+ "latin1=\u00e9\u00fc\n" //
+		+ "simple=redefined\n" //
+		+ "last.line.continued=end\\";
+
+	@Test
+	public void shouldParseSameKeyValuesAsJavaUtilProperties() throws IOException {
+		assertThat(new PropertiesParser().parse(new ByteArrayResource(CONTENT.getBytes(Charsets.ISO_8859_1))), is(javaUtilProperties(CONTENT)));
+	}
+
+	@Test
+	public void shouldParseLinesSpanningBufferBoundaries() throws IOException {
+		assertThat(new PropertiesParser(7).parse(new ByteArrayResource(CONTENT.getBytes(Charsets.ISO_8859_1))), is(javaUtilProperties(CONTENT)));
+	}
+
+	@Test
+	public void shouldParseLinesLongerThanLineBuffer() throws IOException {
+		final StringBuilder content = new StringBuilder("long=");
+		for (int i = 0; i < 5000; i++) {
+			content.append(i % 10);
+		}
+		assertThat(new PropertiesParser(16).parse(new ByteArrayResource(content.toString()
+			.getBytes(Charsets.ISO_8859_1))), is(javaUtilProperties(content.toString())));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectMalformedUnicodeEscape() throws IOException {
+		new PropertiesParser().parse(new ByteArrayResource("bad=\\u00zz".getBytes(Charsets.ISO_8859_1)));
+	}
+
+	private static Map<String, String> javaUtilProperties(final String content) throws IOException {
+		final Properties properties = new Properties();
+		properties.load(new ByteArrayInputStream(content.getBytes(Charsets.ISO_8859_1)));
+		return Maps.fromProperties(properties);
+	}
+}
@@ -0,0 +1,109 @@
+package com.morgan.design.properties.resolver;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.morgan.design.properties.exception.CircularPropertyReferenceException;
+
+public class PropertyResolutionGraphUnitTest {
+
+	private final SubstitutingPropertyResolver propertyResolver = new SubstitutingPropertyResolver();
+
+	@Test
+	public void shouldResolveChainOfReferences() {
+		final PropertyResolutionGraph graph = PropertyResolutionGraph.build(
+				ImmutableMap.of("a", "${b}", "b", "${c}", "c", "value", "d", "${missing}"), this.propertyResolver);
+
+		assertThat(graph.getResolvedValue("a"), is("value"));
+		assertThat(graph.getResolvedValue("b"), is("value"));
+		assertThat(graph.getResolvedValue("c"), is("value"));
+		assertThat(graph.getResolvedValue("d"), is(nullValue()));
+		assertThat(graph.getResolvedValue("missing"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRejectCycleWhenBuilt() {
+		try {
+			PropertyResolutionGraph.build(ImmutableMap.of("a", "${b}", "b", "${c}", "c", "${a}"), this.propertyResolver);
+			fail("Should have thrown CircularPropertyReferenceException due to cycle");
+		}
+		catch (final CircularPropertyReferenceException e) {
+			assertThat(e.getCycle()
+				.size(), is(4));
+			assertThat(e.getCycle()
+				.get(0), is(e.getCycle()
+				.get(3)));
+		}
+	}
+
+	@Test
+	public void shouldRejectSelfReference() {
+		try {
+			PropertyResolutionGraph.build(ImmutableMap.of("a", "${a}"), this.propertyResolver);
+			fail("Should have thrown CircularPropertyReferenceException due to self reference");
+		}
+		catch (final CircularPropertyReferenceException e) {
+			assertThat(e.getCycle(), contains("a", "a"));
+		}
+	}
+
+	@Test
+	public void shouldReResolveDependentsOfChangedProperty() {
+		final Map<String, String> properties = Maps.newHashMap(ImmutableMap.of("a", "${b}", "b", "${c}", "c", "1", "x", "${y}", "y", "2"));
+		final PropertyResolutionGraph graph = PropertyResolutionGraph.build(ImmutableMap.copyOf(properties), this.propertyResolver);
+
+		properties.put("c", "10");
+		properties.put("y", "${c}");
+		final PropertyResolutionGraph updated = graph.update(ImmutableMap.copyOf(properties), ImmutableSet.of("c", "y"));
+
+		assertThat(updated.getResolvedValue("a"), is("10"));
+		assertThat(updated.getResolvedValue("b"), is("10"));
+		assertThat(updated.getResolvedValue("x"), is("10"));
+		assertThat(updated.getResolvedValue("y"), is("10"));
+		assertThat(graph.getResolvedValue("a"), is("1"));
+		assertThat(graph.getResolvedValue("x"), is("2"));
+	}
+
+	@Test
+	public void shouldStopResolvingRemovedProperty() {
+		final Map<String, String> properties = Maps.newHashMap(ImmutableMap.of("a", "${b}", "b", "1"));
+		final PropertyResolutionGraph graph = PropertyResolutionGraph.build(ImmutableMap.copyOf(properties), this.propertyResolver);
+
+		properties.remove("b");
+		final PropertyResolutionGraph updated = graph.update(ImmutableMap.copyOf(properties), Collections.singleton("b"));
+
+		assertThat(updated.getResolvedValue("a"), is(nullValue()));
+		assertThat(updated.getResolvedValue("b"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldFindTransitiveDependentsOnly() {
+		final PropertyResolutionGraph graph = PropertyResolutionGraph.build(
+				ImmutableMap.of("a", "${b}", "b", "${c}", "c", "1", "x", "${y}", "y", "2"), this.propertyResolver);
+
+		assertThat(graph.getDependents(ImmutableSet.of("c")), containsInAnyOrder("a", "b"));
+		assertThat(graph.getDependents(ImmutableSet.of("b", "c")), contains("a"));
+		assertThat(graph.getDependents(ImmutableSet.of("a")).isEmpty(), is(true));
+	}
+
+	@Test(expected = CircularPropertyReferenceException.class)
+	public void shouldRejectUpdateIntroducingCycle() {
+		final Map<String, String> properties = Maps.newHashMap(ImmutableMap.of("a", "${b}", "b", "1"));
+		final PropertyResolutionGraph graph = PropertyResolutionGraph.build(ImmutableMap.copyOf(properties), this.propertyResolver);
+
+		properties.put("b", "${a}");
+		graph.update(ImmutableMap.copyOf(properties), Collections.singleton("b"));
+	}
+}